@@ -2,18 +2,24 @@ package org.javabeeb;
 
 import org.javabeeb.clock.Clock;
 import org.javabeeb.clock.ClockDefinition;
+import org.javabeeb.clock.DeviceClock;
 import org.javabeeb.cpu.Cpu;
+import org.javabeeb.cpu.ExecutionMode;
 import org.javabeeb.device.*;
 import org.javabeeb.disk.FloppyDiskController;
 import org.javabeeb.localfs.FilingSystem;
 import org.javabeeb.localfs.LocalFilingSystem;
 import org.javabeeb.memory.*;
+import org.javabeeb.screen.RenderMode;
 import org.javabeeb.screen.Screen;
 import org.javabeeb.screen.SystemPalette;
+import org.javabeeb.sound.AudioSink;
+import org.javabeeb.sound.MultiSoundChip;
 import org.javabeeb.sound.SoundChip;
 import org.javabeeb.util.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.function.BooleanSupplier;
 
@@ -59,8 +65,14 @@ public final class BBCMicro implements InterruptSource {
     private final Cpu cpu;
 
     private final Clock clock;
+    private final DeviceClock deviceClock;
 
     public BBCMicro() throws Exception {
+        this(AudioSink.createDefault());
+    }
+
+    // e.g. a WavFileAudioSink to capture the sound of a run with no sound card
+    public BBCMicro(final AudioSink audioSink) throws Exception {
 
         this.systemStatus = new SystemStatus();
 
@@ -71,10 +83,13 @@ public final class BBCMicro implements InterruptSource {
                 SHEILA + 0x20
         );
 
-        this.soundChip = SystemVIA.createSoundChip();
+        this.soundChip = new MultiSoundChip(audioSink);
+
+        this.deviceClock = new DeviceClock();
 
         this.systemVIA = new SystemVIA(
                 systemStatus,
+                deviceClock,
                 soundChip,
                 "System VIA",
                 SHEILA + 0x40, 32
@@ -82,6 +97,7 @@ public final class BBCMicro implements InterruptSource {
 
         this.userVIA = new UserVIA(
                 systemStatus,
+                deviceClock,
                 "User VIA",
                 SHEILA + 0x60,
                 32
@@ -94,6 +110,10 @@ public final class BBCMicro implements InterruptSource {
                 systemVIA
         );
 
+        final VideoRegisterLog videoRegisterLog = new VideoRegisterLog(deviceClock);
+        videoULA.setRegisterLog(videoRegisterLog);
+        crtc6845.setRegisterLog(videoRegisterLog);
+
         final Scheduler scheduler = new DefaultScheduler();
         this.adc = new ADC(
                 systemStatus,
@@ -146,9 +166,11 @@ public final class BBCMicro implements InterruptSource {
                 systemStatus,
                 this,
                 memory,
+                ram,
                 videoULA,
                 crtc6845,
-                systemVIA
+                systemVIA,
+                videoRegisterLog
         );
 
         crtc6845.addNewFrameListener(screen::newFrame);
@@ -164,8 +186,10 @@ public final class BBCMicro implements InterruptSource {
                 systemStatus,
                 ClockDefinition.CR200,
                 Long.MAX_VALUE,
-                Arrays.asList(cpu, systemVIA, userVIA, crtc6845, screen)
+                cpu,
+                Arrays.asList(deviceClock, crtc6845, screen)
         );
+        clock.setAudioPacer(soundChip.getAudioPacer());
         addInterruptSource(crtc6845);
         addInterruptSource(systemVIA);
         addInterruptSource(userVIA);
@@ -236,6 +260,8 @@ public final class BBCMicro implements InterruptSource {
 
     private State createState() throws Exception {
         final State state = new State();
+        systemVIA.synchronise();
+        userVIA.synchronise();
         Util.populateState(state, videoULA);
         Util.populateState(state, systemVIA);
         Util.populateState(state, soundChip);
@@ -254,12 +280,21 @@ public final class BBCMicro implements InterruptSource {
         Util.applyState(state, crtc6845);
         Util.applyState(state, cpu);
         Util.applyState(state, ram);
+        ram.markAllDirty();
+        systemVIA.stateRestored();
+        videoULA.stateRestored();
+        userVIA.stateRestored();
     }
 
     public void run(final BooleanSupplier haltCondition) {
         this.clock.run(haltCondition);
     }
 
+    // Finishes the sound once the machine has stopped running
+    public void close() throws IOException {
+        soundChip.close(deviceClock.getCycle());
+    }
+
     public void addInterruptSource(final InterruptSource source) {
         interruptSources = Arrays.copyOf(interruptSources, interruptSources.length + 1);
         interruptSources[interruptSources.length - 1] = source;
@@ -269,6 +304,20 @@ public final class BBCMicro implements InterruptSource {
         return clock;
     }
 
+    public void setClockDefinition(final ClockDefinition clockDefinition) {
+        clock.setDefinition(clockDefinition);
+    }
+
+    // AUTOMATIC (the default) runs whole instructions per step only when the clock is unthrottled
+    public void setExecutionMode(final ExecutionMode executionMode) {
+        cpu.setExecutionMode(executionMode);
+    }
+
+    // AUTOMATIC (the default) paints graphics modes a whole frame at a time only when the clock is unthrottled
+    public void setRenderMode(final RenderMode renderMode) {
+        screen.setRenderMode(renderMode);
+    }
+
     @Override
     public boolean isIRQ() {
         for (InterruptSource s : interruptSources) {
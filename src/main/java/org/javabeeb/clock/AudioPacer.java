@@ -0,0 +1,16 @@
+package org.javabeeb.clock;
+
+//
+// An output that consumes blocks of emulated time at its own real time rate - e.g. the audio line - and so can set the
+// pace of the clock
+//
+public interface AudioPacer {
+
+    int getBlocksPerSecond();
+
+    // The number of blocks the output has taken so far
+    long getBlocksConsumed();
+
+    // Waits until at least count blocks have been consumed - false if that didn't happen within the timeout
+    boolean awaitBlocksConsumed(long count, long timeoutNanos);
+}
@@ -1,21 +1,34 @@
 package org.javabeeb.clock;
 
 import org.javabeeb.util.SystemStatus;
-import org.javabeeb.util.Util;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BooleanSupplier;
 
 public final class Clock {
 
     private static final int MAX_RESET_CYCLES = 8_000_000;
     private static final long ADJUST_MASK = 0xFF;
+    private static final int SLICES_PER_SECOND = 50;
+    private static final int UNTHROTTLED_SLICE_CYCLES = 1 << 16;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // How long to wait for the audio output before deciding it has stopped
+    private static final long AUDIO_TIMEOUT_NANOS = NANOS_PER_SECOND / 4;
+    // How often to look for it having started again
+    private static final long AUDIO_RETRY_NANOS = NANOS_PER_SECOND;
+    private static final int MAX_AUDIO_BLOCKS_BEHIND = 2;
 
     private final SystemStatus systemStatus;
+    private final ClockDriver driver;
     private final ClockListener[] listeners;
     private final long maxCycleCount;
     private volatile boolean paused;
+    private volatile PacingMode pacingMode = PacingMode.SLICE;
+    private volatile Thread runThread;
+    private volatile AudioPacer audioPacer;
     private long cycleCount;
     private long cycleCountSinceReset;
 
@@ -29,9 +42,11 @@ public final class Clock {
             final SystemStatus systemStatus,
             final ClockDefinition definition,
             final long maxCycleCount,
+            final ClockDriver driver,
             final List<ClockListener> listeners
     ) {
         this.systemStatus = Objects.requireNonNull(systemStatus);
+        this.driver = Objects.requireNonNull(driver);
         setDefinition(definition);
         this.maxCycleCount = maxCycleCount;
         this.listeners = new ClockListener[listeners.size()];
@@ -46,30 +61,176 @@ public final class Clock {
         this.initialDelayNanos = this.delayNanos;
     }
 
+    public ClockDefinition getDefinition() {
+        return definition;
+    }
+
+    public PacingMode getPacingMode() {
+        return pacingMode;
+    }
+
+    public void setPacingMode(final PacingMode pacingMode) {
+        this.pacingMode = Objects.requireNonNull(pacingMode);
+    }
+
+    // Null if there is no audio output to pace the clock with
+    public void setAudioPacer(final AudioPacer audioPacer) {
+        this.audioPacer = audioPacer;
+    }
+
     public void setPaused(final boolean paused) {
+        driver.setPaused(paused);
         for (ClockListener l : listeners) {
             l.setPaused(paused);
         }
         this.paused = paused;
+        final Thread t = runThread;
+        if (!paused && t != null) {
+            LockSupport.unpark(t);
+        }
     }
 
     public void run(final BooleanSupplier stopCondition) {
+        runThread = Thread.currentThread();
+        try {
+            if (pacingMode == PacingMode.SPIN) {
+                runSpinning(stopCondition);
+            } else {
+                runSlices(stopCondition);
+            }
+        } finally {
+            runThread = null;
+        }
+    }
+
+    // Returns how long it was paused for
+    private long awaitResume() {
+        final long t = System.nanoTime();
+        while (paused) {
+            LockSupport.park(this);
+        }
+        return System.nanoTime() - t;
+    }
+
+    private void runSlices(final BooleanSupplier stopCondition) {
         long firstStartTime = System.nanoTime();
         long resetTime = firstStartTime;
-        this.nextTickTime = resetTime + delayNanos;
+        long sliceDeadline = firstStartTime;
+        long elapsedNanos = 0L;
+        long audioBlock = -1L;
+        // While the audio output has stopped, how many blocks it had consumed when last checked, and when that was
+        long stoppedAudioBlocks = -1L;
+        long stoppedAudioCheckTime = 0L;
         while (!stopCondition.getAsBoolean()) {
             if (paused) {
-                while (paused) {
-                    final long t = System.nanoTime();
-                    Util.sleep(100);
-                    firstStartTime += System.nanoTime() - t;
+                final long pausedNanos = awaitResume();
+                firstStartTime += pausedNanos;
+                resetTime = System.nanoTime();
+                sliceDeadline = resetTime;
+                cycleCountSinceReset = 0L;
+                audioBlock = -1L;
+            }
+
+            final ClockDefinition definition = this.definition;
+            final boolean throttled = definition.isThrottled();
+            final AudioPacer audio = audioPacer;
+            if (stoppedAudioBlocks >= 0L && audio != null && System.nanoTime() - stoppedAudioCheckTime >= AUDIO_RETRY_NANOS) {
+                final long consumed = audio.getBlocksConsumed();
+                if (consumed != stoppedAudioBlocks) {
+                    // The audio output is consuming again so go back to keeping time by it
+                    stoppedAudioBlocks = -1L;
+                    audioBlock = -1L;
+                } else {
+                    stoppedAudioCheckTime = System.nanoTime();
+                }
+            }
+            final AudioPacer pacer = (throttled && stoppedAudioBlocks < 0L && pacingMode == PacingMode.AUDIO) ? audio : null;
+            final int slicesPerSecond = (pacer != null) ? pacer.getBlocksPerSecond() : SLICES_PER_SECOND;
+            final int sliceCycles = (throttled) ? Math.max(1, definition.getClockRate() / slicesPerSecond) : UNTHROTTLED_SLICE_CYCLES;
+            final long nanosPerCycle = NANOS_PER_SECOND / definition.getClockRate();
+            if (!throttled) {
+                elapsedNanos = System.nanoTime() - firstStartTime;
+            }
+            long nextSampleCycle = cycleCount + ADJUST_MASK + 1;
+            for (int i = 0; i < sliceCycles; ) {
+                if (throttled) {
+                    // Time as the emulated machine sees it
+                    elapsedNanos += nanosPerCycle;
+                } else if (cycleCount >= nextSampleCycle) {
+                    elapsedNanos = System.nanoTime() - firstStartTime;
+                    nextSampleCycle = cycleCount + ADJUST_MASK + 1;
                 }
+
+                // The driver decides how many cycles this step takes and everything else catches up with it
+                final int cycles = driver.step(definition, elapsedNanos);
+                for (ClockListener l : listeners) {
+                    l.advance(definition, cycles, elapsedNanos);
+                }
+                if (throttled && cycles > 1) {
+                    elapsedNanos += (cycles - 1) * nanosPerCycle;
+                }
+
+                i += cycles;
+                cycleCount += cycles;
+                cycleCountSinceReset += cycles;
+                if (cycleCount >= maxCycleCount || stopCondition.getAsBoolean()) {
+                    return;
+                }
+                if (paused) {
+                    break;
+                }
+            }
+
+            if (pacer != null) {
+                // One slice for every block of sound consumed, catching up a little if the emulation has fallen behind
+                final long consumed = pacer.getBlocksConsumed();
+                if (audioBlock < 0L || consumed - audioBlock > MAX_AUDIO_BLOCKS_BEHIND) {
+                    audioBlock = consumed;
+                }
+                audioBlock++;
+                if (!pacer.awaitBlocksConsumed(audioBlock, AUDIO_TIMEOUT_NANOS)) {
+                    // The audio output has stopped so keep time as SLICE does until it starts again
+                    stoppedAudioBlocks = pacer.getBlocksConsumed();
+                    stoppedAudioCheckTime = System.nanoTime();
+                }
+                sliceDeadline = System.nanoTime();
+            } else if (throttled) {
+                sliceDeadline += sliceCycles * NANOS_PER_SECOND / definition.getClockRate();
+                final long now = System.nanoTime();
+                if (sliceDeadline - now < -NANOS_PER_SECOND / SLICES_PER_SECOND) {
+                    // Too far behind to catch up
+                    sliceDeadline = now;
+                }
+                long remaining;
+                while ((remaining = sliceDeadline - System.nanoTime()) > 0L && !paused) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+
+            // Update the status every second or so
+            final long now = System.nanoTime();
+            if (now - resetTime >= NANOS_PER_SECOND) {
+                updateSystemStatus(now - resetTime);
+                cycleCountSinceReset = 0L;
+                resetTime = now;
+            }
+        }
+    }
+
+    private void runSpinning(final BooleanSupplier stopCondition) {
+        long firstStartTime = System.nanoTime();
+        long resetTime = firstStartTime;
+        this.nextTickTime = resetTime + delayNanos;
+        while (!stopCondition.getAsBoolean()) {
+            if (paused) {
+                firstStartTime += awaitResume();
                 resetTime = resetDelay(resetTime, false);
             }
 
             final long nanoTime = awaitNextCycle();
 
             // Send tick to all the listeners
+            driver.tick(definition, nanoTime - firstStartTime);
             for (ClockListener l : listeners) {
                 l.tick(definition, nanoTime - firstStartTime);
             }
@@ -65,6 +65,25 @@ public final class ClockDefinition {
         }
     }
 
+    // As above, but for a number of consecutive input cycles at once
+    public int computeElapsedCycles(final int targetClockRate, final long targetCycleCount, final long targetTickCount, final long elapsedNanos, final int inputCycles) {
+        if (fitsTwoMhz) {
+            if (this.clockRate > targetClockRate) {
+                // One for every input cycle that is a multiple of the stretch
+                final int stretch = this.clockRate / targetClockRate;
+                return (int) (ceilDiv(targetCycleCount + inputCycles, stretch) - ceilDiv(targetCycleCount, stretch));
+            } else {
+                return inputCycles * (targetClockRate / clockRate);
+            }
+        } else {
+            return computeElapsedCycles(targetClockRate, targetCycleCount, targetTickCount, elapsedNanos);
+        }
+    }
+
+    private static long ceilDiv(final long n, final int d) {
+        return (n + d - 1) / d;
+    }
+
     public String getDisplayName() {
         return displayName;
     }
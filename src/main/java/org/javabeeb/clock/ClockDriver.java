@@ -0,0 +1,14 @@
+package org.javabeeb.clock;
+
+//
+// The listener that drives the others (i.e. the CPU). It decides how many cycles each step of the clock takes, and
+// the other listeners are then advanced by that many cycles at once.
+//
+public interface ClockDriver extends ClockListener {
+
+    // Runs until the rest of the machine next needs to catch up, returning the number of cycles that took (at least 1)
+    default int step(final ClockDefinition clockDefinition, final long elapsedNanos) {
+        tick(clockDefinition, elapsedNanos);
+        return 1;
+    }
+}
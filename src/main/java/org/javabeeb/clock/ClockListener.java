@@ -4,6 +4,13 @@ public interface ClockListener {
 
     void tick(ClockDefinition clockDefinition, long elapsedNanos);
 
+    // Advance by a number of cycles at once - listeners that can do this in bulk should override it
+    default void advance(final ClockDefinition clockDefinition, final int cycles, final long elapsedNanos) {
+        for (int i = 0; i < cycles; i++) {
+            tick(clockDefinition, elapsedNanos);
+        }
+    }
+
     default void setPaused(final boolean paused) {
         // Do nothing by default
     }
@@ -0,0 +1,59 @@
+package org.javabeeb.clock;
+
+import org.javabeeb.util.DefaultScheduler;
+import org.javabeeb.util.ScheduledTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//
+// Keeps 2Mhz device time for devices that aren't ticked themselves. They catch up with it when they're accessed,
+// and schedule tasks on it for anything they need to do at an exact time (e.g. raise an interrupt).
+//
+public final class DeviceClock implements ClockListener {
+
+    // The clock rate that device time runs at
+    private static final int CLOCK_SPEED = ClockDefinition.TWO_MHZ;
+
+    private final DefaultScheduler scheduler = new DefaultScheduler();
+    private final List<Consumer<Boolean>> pauseListeners = new ArrayList<>();
+
+    private long inputCycleCount;
+    private long tickCount;
+
+    @Override
+    public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
+        advance(clockDefinition, 1, elapsedNanos);
+    }
+
+    @Override
+    public void advance(final ClockDefinition clockDefinition, final int inputCycles, final long elapsedNanos) {
+        final int cycles = clockDefinition.computeElapsedCycles(CLOCK_SPEED, inputCycleCount, tickCount, elapsedNanos, inputCycles);
+        inputCycleCount += inputCycles;
+        if (cycles > 0) {
+            tickCount += cycles;
+            scheduler.advance(cycles);
+        }
+    }
+
+    @Override
+    public void setPaused(final boolean paused) {
+        for (Consumer<Boolean> l : pauseListeners) {
+            l.accept(paused);
+        }
+    }
+
+    public void addPauseListener(final Consumer<Boolean> l) {
+        pauseListeners.add(l);
+    }
+
+    // The current device time in 2Mhz cycles - while a task is running, the time it was due
+    public long getCycle() {
+        return scheduler.getCycle();
+    }
+
+    public ScheduledTask newTask(final Runnable runnable) {
+        return scheduler.newTask(runnable);
+    }
+}
@@ -0,0 +1,14 @@
+package org.javabeeb.clock;
+
+public enum PacingMode {
+
+    // Wait for the exact time of every cycle - precise, but keeps a host core busy
+    SPIN,
+
+    // Run a slice of cycles flat out and then sleep until the time the slice should have taken has passed
+    SLICE,
+
+    // Run a slice of cycles for every block of sound the audio output takes, so the sound never runs dry and the host
+    // sleeps in between - the same as SLICE if there is no audio output
+    AUDIO
+}
@@ -0,0 +1,64 @@
+package org.javabeeb.cpu;
+
+//
+// A run of pre-decoded instructions, from an entry address up to and including the next branch, jump, RTS, RTI or BRK
+//
+final class BasicBlock {
+
+    private final int bank;
+    private final int[] addresses;
+    private final int[] opcodes;
+    private final int[] operands;
+    private final int end;
+
+    private boolean valid = true;
+
+    BasicBlock(final int bank, final int[] addresses, final int[] opcodes, final int[] operands, final int end) {
+        this.bank = bank;
+        this.addresses = addresses;
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.end = end;
+    }
+
+    int getBank() {
+        return bank;
+    }
+
+    int size() {
+        return opcodes.length;
+    }
+
+    int getStartAddress() {
+        return addresses[0];
+    }
+
+    int getAddress(final int index) {
+        return addresses[index];
+    }
+
+    // The address following instruction 'index'
+    int getNextAddress(final int index) {
+        return (index + 1 < addresses.length) ? addresses[index + 1] : end;
+    }
+
+    int getOpcode(final int index) {
+        return opcodes[index];
+    }
+
+    int getOperand(final int index) {
+        return operands[index];
+    }
+
+    int getEndAddress() {
+        return end;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+}
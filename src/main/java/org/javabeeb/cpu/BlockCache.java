@@ -0,0 +1,140 @@
+package org.javabeeb.cpu;
+
+import org.javabeeb.memory.Memory;
+import org.javabeeb.memory.PageWriteListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+//
+// Basic blocks keyed by code bank (see Memory.getCodeBank) and entry address. Blocks are translated the first time
+// their entry address is executed, from the DecodeCache. ROM blocks live forever; blocks in RAM are dropped when any
+// page they occupy is written to, so self-modifying code is picked up on its next execution.
+//
+final class BlockCache implements PageWriteListener {
+
+    private static final int MAX_BLOCK_INSTRUCTIONS = 64;
+    private static final int BANK_COUNT = 17;
+
+    private final Memory memory;
+    private final InstructionSet instructionSet;
+    private final DecodeCache decodeCache;
+
+    private final BasicBlock[][] blocks = new BasicBlock[BANK_COUNT][];
+    private final List<List<BasicBlock>> pageBlocks = new ArrayList<>();
+
+    private final int[] addresses = new int[MAX_BLOCK_INSTRUCTIONS];
+    private final int[] opcodes = new int[MAX_BLOCK_INSTRUCTIONS];
+    private final int[] operands = new int[MAX_BLOCK_INSTRUCTIONS];
+
+    BlockCache(final Memory memory, final InstructionSet instructionSet, final DecodeCache decodeCache) {
+        this.memory = Objects.requireNonNull(memory);
+        this.instructionSet = Objects.requireNonNull(instructionSet);
+        this.decodeCache = Objects.requireNonNull(decodeCache);
+        for (int i = 0; i < 256; i++) {
+            pageBlocks.add(new ArrayList<>());
+        }
+    }
+
+    // Returns the block starting at the address in the code bank currently visible there, translating it if
+    // necessary, or null if the address can't be translated
+    BasicBlock get(final int address) {
+        final int bank = decodeCache.getBank(address);
+        if (bank < 0) {
+            return null;
+        }
+        BasicBlock[] bankBlocks = blocks[bank];
+        if (bankBlocks == null) {
+            bankBlocks = new BasicBlock[decodeCache.getBankSize(bank)];
+            blocks[bank] = bankBlocks;
+        }
+        final int index = address - decodeCache.getBankStart(bank);
+        BasicBlock block = bankBlocks[index];
+        if (block == null) {
+            block = translate(address, bank);
+            if (block != null) {
+                bankBlocks[index] = block;
+                watchPages(block);
+            }
+        }
+        return block;
+    }
+
+    void clear() {
+        Arrays.fill(blocks, null);
+        pageBlocks.forEach(List::clear);
+    }
+
+    @Override
+    public void pageWritten(final int page) {
+        final List<BasicBlock> list = pageBlocks.get(page);
+        for (BasicBlock block : list) {
+            block.invalidate();
+            final BasicBlock[] bankBlocks = blocks[block.getBank()];
+            final int index = block.getStartAddress() - decodeCache.getBankStart(block.getBank());
+            if (bankBlocks != null && bankBlocks[index] == block) {
+                bankBlocks[index] = null;
+            }
+        }
+        list.clear();
+    }
+
+    private void watchPages(final BasicBlock block) {
+        final int firstPage = block.getStartAddress() >>> 8;
+        final int lastPage = (block.getEndAddress() - 1) >>> 8;
+        for (int page = firstPage; page <= lastPage; page++) {
+            pageBlocks.get(page).add(block);
+            memory.watchPage(page << 8, this);
+        }
+    }
+
+    private BasicBlock translate(final int address, final int bank) {
+        int pc = address;
+        int count = 0;
+        while (count < MAX_BLOCK_INSTRUCTIONS) {
+            final int entry = decodeCache.get(pc);
+            final int length = DecodeCache.getLength(entry);
+            if (length == 0) {
+                break;
+            }
+            addresses[count] = pc;
+            opcodes[count] = DecodeCache.getOpcode(entry);
+            operands[count] = DecodeCache.getOperand(entry);
+            count++;
+            pc += length;
+            if (endsBlock(instructionSet.decode(opcodes[count - 1])) || pc > 0xFFFF || decodeCache.getBank(pc) != bank) {
+                break;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        return new BasicBlock(
+                bank,
+                Arrays.copyOf(addresses, count),
+                Arrays.copyOf(opcodes, count),
+                Arrays.copyOf(operands, count),
+                pc
+        );
+    }
+
+    private static boolean endsBlock(final InstructionKey key) {
+        switch (key.getInstruction().getType()) {
+            case BRANCH:
+            case JUMP:
+                return true;
+        }
+        switch (key.getInstruction()) {
+            case JSR:
+            case RTS:
+            case RTI:
+            case BRK:
+            case HLT:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
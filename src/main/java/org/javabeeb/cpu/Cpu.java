@@ -1,10 +1,12 @@
 package org.javabeeb.cpu;
 
 import org.javabeeb.assembler.Disassembler;
-import org.javabeeb.clock.ClockListener;
+import org.javabeeb.clock.ClockDriver;
 import org.javabeeb.clock.ClockDefinition;
 import org.javabeeb.device.Device;
+import org.javabeeb.memory.InterceptFilter;
 import org.javabeeb.memory.Memory;
+import org.javabeeb.memory.PageTable;
 import org.javabeeb.util.*;
 
 import java.util.HashMap;
@@ -15,7 +17,7 @@ import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 
 @StateKey(key = "cpu6502")
-public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
+public final class Cpu implements Device, ClockDriver, Runnable, Scheduler {
 
     public static final int NMI_JUMP_VECTOR = 0xFFFA;
     public static final int CODE_START_VECTOR = 0xFFFC;
@@ -24,13 +26,18 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     private static final int STACK_START = 0x100;
 
     private final Memory memory;
+    private final PageTable pageTable;
+    private final InterceptFilter interceptFilter;
 
     private final SystemStatus systemStatus;
     private final Scheduler scheduler;
     private final InstructionSet instructionSet = new InstructionSet();
+    private final int[] baseCycles = instructionSet.getBaseCycles();
+    private final int[] instructionLengths = instructionSet.getInstructionLengths();
     private final AtomicLong cycleCount = new AtomicLong();
-    private final CpuQueue queue = new CpuQueue();
     private final Disassembler disassembler;
+    private final DecodeCache decodeCache;
+    private final BlockCache blockCache;
 
     private InterruptSource interruptSource;
     private Runnable saveStateCallback;
@@ -53,9 +60,16 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     @StateKey(key = "sp")
     private int sp = 0xFF;
 
+    // Only I, D, B and R are kept up to date in here - N, Z, C and V are packed in (see getFlags) for saving state
     @StateKey(key = "flags")
     private int flags;
 
+    // N, Z, C and V are evaluated from these only when they're read
+    private int nResult;        // N is bit 7
+    private int zResult = 1;    // Z is set when zero
+    private int carry;          // C is 0 or 1
+    private int vResult;        // V is bit 7
+
     @StateKey(key = "servicingInterrupt")
     private boolean servicingInterrupt;
 
@@ -70,14 +84,29 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     private Instruction instruction;
     private String instructionDis;
     private int pcDis;
-    private AddressMode addressMode;
     private int operand;
     private int lo;
     private int hi;
     private int elo;
     private int ehi;
+    private int ea;
     private int jumpVector;
 
+    //
+    // Micro-op program for the current instruction (or interrupt) and the index of the next op to run
+    //
+    private int[] program = MicroOp.EMPTY_PROGRAM;
+    private int step;
+
+    //
+    // Instruction-granular execution
+    //
+    private volatile ExecutionMode executionMode = ExecutionMode.AUTOMATIC;
+    private int stallCycles;
+    private int extraCycles;
+    private BasicBlock block;
+    private int blockIndex;
+
     private boolean halted;
     private int haltCode;
     private BooleanSupplier verboseCondition;
@@ -95,7 +124,11 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         this.systemStatus = Objects.requireNonNull(systemStatus);
         this.scheduler = Objects.requireNonNull(scheduler);
         this.memory = Objects.requireNonNull(memory);
+        this.pageTable = memory.getPageTable();
+        this.interceptFilter = memory.getInterceptFilter();
         this.disassembler = new Disassembler(instructionSet, memory);
+        this.decodeCache = new DecodeCache(memory, instructionSet);
+        this.blockCache = new BlockCache(memory, instructionSet, decodeCache);
         reset();
     }
 
@@ -119,6 +152,16 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         scheduler.unschedule(task);
     }
 
+    @Override
+    public void advance(long cycles) {
+        scheduler.advance(cycles);
+    }
+
+    @Override
+    public long getCyclesUntilNextEvent() {
+        return scheduler.getCyclesUntilNextEvent();
+    }
+
     public SystemStatus getSystemStatus() {
         return systemStatus;
     }
@@ -126,11 +169,19 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     public void reset() {
         this.pc = memory.readWord(CODE_START_VECTOR);
         this.sp = 0xFF;
-        this.flags = Flag.INTERRUPT.set(0);
+        setFlags(Flag.INTERRUPT.set(0));
         this.halted = false;
         this.haltCode = 0;
     }
 
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(final ExecutionMode executionMode) {
+        this.executionMode = Objects.requireNonNull(executionMode);
+    }
+
     public void setInterruptSource(final InterruptSource interruptSource) {
         this.interruptSource = interruptSource;
     }
@@ -218,39 +269,29 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     private void serviceInterrupt(final boolean isBRK, final boolean isReset) {
         servicingInterrupt = true;
         if (isBRK) {
-            queue(this::readFromAndIncrementPC); // skip next byte
-            queue(() -> pushByte(getPCH()));
+            start(MicroOp.BRK_PROGRAM);
         } else {
-            queue(() -> pushByte(getPCH())); // not queued
+            start((isReset) ? MicroOp.RESET_PROGRAM : MicroOp.IRQ_PROGRAM);
+        }
+    }
+
+    private void start(final int[] program) {
+        this.program = program;
+        this.step = 0;
+    }
+
+    private void end() {
+        step = program.length;
+    }
+
+    // The page wasn't crossed so the value just read was the right one - otherwise fix the high byte and read again
+    private void acceptUnlessCrossed() {
+        if (elo > 255) {
+            ehi++;
+        } else {
+            instruction.acceptValue(this, operand);
+            end();
         }
-        queue(() -> pushByte(getPCL()));
-        queue(() -> {
-            pushByte(Flag.RESERVED.set(Flag.BREAK.set(flags, isBRK)));
-        });
-        queue(() -> {
-            if (isReset) {
-                jumpVector = CODE_START_VECTOR;
-                nmiRequested = false;
-                inNMI = false;
-                inIRQ = false;
-            } else if (nmiRequested) {
-                jumpVector = NMI_JUMP_VECTOR;
-                nmiRequested = false;
-                inNMI = true;
-            } else {
-                jumpVector = IRQ_JUMP_VECTOR;
-                inIRQ = (!isBRK);
-            }
-            setPCL(readMemory(jumpVector));
-        });
-        queue(() -> {
-            setPCH(readMemory(jumpVector + 1));
-            servicingInterrupt = false;
-            flags = Flag.INTERRUPT.set(flags);
-            if (isReset) {
-                reset();
-            }
-        });
     }
 
     public void setQuiescentCallback(Runnable callback) {
@@ -267,27 +308,64 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         this.resetRequested = b;
     }
 
+    @Override
+    public int step(final ClockDefinition clockDefinition, final long elapsedNanos) {
+        tick(clockDefinition, elapsedNanos);
+
+        // An instruction executed in one go takes the rest of its cycles here too
+        final int stalled = stallCycles;
+        if (stalled > 0) {
+            stallCycles = 0;
+            scheduler.advance(stalled);
+            final long count = countCycles(stalled);
+            if (maxCycleCount > 0L && count >= maxCycleCount) {
+                halt(0);
+            }
+        }
+        return 1 + stalled;
+    }
+
     @Override
     public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
         scheduler.tick(clockDefinition, elapsedNanos);
         pcDis = pc;
-        if (queue.isEmpty()) {
+        if (stallCycles > 0) {
+            // Paying for the rest of an instruction that has already been executed in one go
+            stallCycles--;
+            countCycles(1);
+        } else if (step >= program.length) {
+            final boolean instructionGranular = executionMode.isInstructionGranular(clockDefinition);
             if (!servicingInterrupt) {
                 // We are quiescent here
+                if (pageTable != null) {
+                    pageTable.remapIfRequested();
+                }
                 if (saveStateCallback != null) {
+                    flags = getFlags();
                     saveStateCallback.run();
                     saveStateCallback = null;
+                    setFlags(flags);
+                    // Memory may have been replaced wholesale
+                    decodeCache.clear();
+                    blockCache.clear();
+                    block = null;
                 }
 
                 // Check reset request
                 if (resetRequested) {
                     serviceInterrupt(false, true);
                     resetRequested = false;
+                    if (instructionGranular) {
+                        stallCycles = runProgram();
+                    }
                     return;
                 }
                 // Check interrupt status
                 if (isNMI() || (Flag.INTERRUPT.isClear(flags) && isIRQ())) {
                     serviceInterrupt(false, false);
+                    if (instructionGranular) {
+                        stallCycles = runProgram();
+                    }
                     return;
                 }
             }
@@ -296,24 +374,33 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
                 Util.sleep(fetchDelayMillis);
             }
 
-            fetch();
+            fetch(instructionGranular);
 
-            cycleCount.incrementAndGet();
+            countCycles(1);
         } else {
             instructionDis = "";
-            queue.remove().run();
-            cycleCount.incrementAndGet();
+            runMicroOp(program[step++]);
+            countCycles(1);
         }
 
-        if (maxCycleCount > 0L && cycleCount.get() >= maxCycleCount) {
+        if (maxCycleCount > 0L && cycleCount.getPlain() >= maxCycleCount) {
             halt(0);
         }
     }
 
+    // Only ever called on the CPU thread, so the count needn't be added to atomically - just published for others
+    // to read (an atomic add every cycle costs the cycle-accurate core a good part of its time)
+    private long countCycles(final int cycles) {
+        final long count = cycleCount.getPlain() + cycles;
+        cycleCount.setOpaque(count);
+        return count;
+    }
+
+    // Steps rather than ticks, so that an instruction granular mode takes each instruction's cycles all at once
     @Override
     public void run() {
         while (!halted) {
-            tick(ClockDefinition.CR200, 0L);
+            step(ClockDefinition.CR200, 0L);
         }
     }
 
@@ -322,7 +409,7 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     }
 
     private int lastFetchPC;
-    private void fetch() {
+    private void fetch(final boolean instructionGranular) {
 
         if (lastFetchPC == this.pc && haltIfPCLoop) {
             this.halted = true;
@@ -336,24 +423,46 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
 
         final boolean verbose = (verboseCondition != null && verboseCondition.getAsBoolean());
 
-        while (memory.processIntercepts(pc)) {
-            // Do nothing
+        if (interceptFilter == null || interceptFilter.isSet(pc)) {
+            while (memory.processIntercepts(pc)) {
+                // Do nothing
+            }
         }
 
         if (verbose) {
             instructionDis = Util.formatHexWord(this.pc) + ": " + disassembler.disassemble(this.pc);
         }
 
-        final int opcode = readFromAndIncrementPC();
-        final InstructionKey key = instructionSet.decode(opcode);
-        this.instruction = key.getInstruction();
-        this.addressMode = key.getAddressMode();
+        if (instructionGranular) {
+            if (verbose) {
+                Util.log(toString(), 0);
+            }
+            stallCycles = executeNextInstruction() - 1;
+            return;
+        }
+
+        // Opcodes already decoded from RAM / ROM needn't be read again - the read has no side effects
+        final int entry = decodeCache.get(pc);
+        final int[] microOps;
+        if (DecodeCache.getLength(entry) != 0) {
+            this.instruction = decodeCache.getInstruction(entry);
+            microOps = decodeCache.getMicroOps(entry);
+            incPC();
+        } else {
+            final InstructionKey key = instructionSet.decode(readFromAndIncrementPC());
+            this.instruction = key.getInstruction();
+            microOps = key.getMicroOps();
+        }
 
         if (verbose) {
             Util.log(toString(), 0);
         }
 
-        execute();
+        if (instruction == Instruction.BRK) {
+            serviceBRK();
+        } else {
+            start(microOps);
+        }
     }
 
     public void JSR(final int address) {
@@ -373,523 +482,643 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         returnTo.put(address, runnable);
     }
 
-    private void execute() {
+    private void runReturnTo() {
+        if (!returnTo.isEmpty() && returnTo.containsKey(pc)) {
+            returnTo.get(pc).run();
+            returnTo.remove(pc);
+        }
+    }
 
-        switch (instruction) {
-            case BRK: {
-                serviceBRK();
-                return;
-            }
-            case RTI: {
-                queue(this::readFromPC);
-                queue(this::incSP);
-                queue(() -> {
-                    flags = Flag.BREAK.clear(popByteNoIncrement());
-                    incSP();
-                });
-                queue(() -> {
-                    setPCL(popByteNoIncrement());
-                    incSP();
-                });
-                queue(() -> {
-                    setPCH(popByteNoIncrement());
-                    inIRQ = false;
-                    inNMI = false;
-                });
-                return;
-            }
-            case RTS: {
-                queue(this::readFromPC);
-                queue(this::incSP);
-                queue(() -> {
-                    setPCL(popByteNoIncrement());
-                    incSP();
-                });
-                queue(() -> setPCH(popByteNoIncrement()));
-                queue(() -> {
-                    if (returnTo.containsKey(pc)) {
-                        returnTo.get(pc).run();
-                        returnTo.remove(pc);
-                    }
-                    incPC();
-                });
-                return;
-            }
-            case PHA: {
-                queue(this::readFromPC);
-                queue(() -> {
-                    pushByte(a);
-                });
-                return;
-            }
-            case PHP: {
-                queue(this::readFromPC);
-                queue(() -> {
-                    pushByte(Flag.RESERVED.set(Flag.BREAK.set(flags)));
-                });
-                return;
-            }
-            case PLA: {
-                queue(this::readFromPC);
-                queue(() -> incSP());
-                queue(() -> setA(popByteNoIncrement(), true));
-                return;
-            }
-            case PLP: {
-                queue(this::readFromPC);
-                queue(() -> incSP());
-                queue(() -> flags = Flag.BREAK.clear(popByteNoIncrement()));
-                return;
-            }
-            case JSR: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(this::nop);
-                queue(() -> pushByte(getPCH()));
-                queue(() -> pushByte(getPCL()));
-                queue(() -> {
-                    hi = readFromPC();
-                    setPCL(lo);
-                    setPCH(hi);
-                });
-                return;
+    // Runs the instruction at PC, taking it pre-decoded from the current (or a cached) basic block where possible
+    private int executeNextInstruction() {
+        BasicBlock b = block;
+        if (b == null || blockIndex >= b.size() || !b.isValid() || b.getAddress(blockIndex) != pc ||
+                (b.getBank() != 0 && decodeCache.getBank(pc) != b.getBank())) {
+            b = blockCache.get(pc);
+            block = b;
+            blockIndex = 0;
+            if (b == null) {
+                final int opcode = readFromAndIncrementPC();
+                final int length = instructionLengths[opcode];
+                final int arg;
+                if (length == 3) {
+                    arg = readFromAndIncrementPC() | (readFromAndIncrementPC() << 8);
+                } else if (length == 2) {
+                    arg = readFromAndIncrementPC();
+                } else {
+                    arg = 0;
+                }
+                return execute(opcode, arg);
             }
         }
+        final int i = blockIndex++;
+        pc = b.getNextAddress(i);
+        return execute(b.getOpcode(i), b.getOperand(i));
+    }
 
-        switch (addressMode) {
-
-            case ACCUMULATOR:
-                accumulator();
-                break;
-
-            case IMPLIED:
-                implied();
-                break;
-
-            case IMMEDIATE:
-                immediate();
+    //
+    // Instruction-granular engine - runs a whole instruction and returns the number of cycles it took (the same
+    // number the cycle-accurate engine would take). Dummy bus cycles are skipped.
+    //
+    private int execute(final int opcode, final int arg) {
+        extraCycles = 0;
+        int address;
+        switch (opcode) {
+
+            // ADC
+            case 0x69: adc(arg); break;
+            case 0x65: adc(readMemory(arg)); break;
+            case 0x75: adc(readMemory(zpIndexedAddress(arg, x))); break;
+            case 0x6D: adc(readMemory(arg)); break;
+            case 0x7D: adc(readMemory(absoluteIndexedReadAddress(arg, x))); break;
+            case 0x79: adc(readMemory(absoluteIndexedReadAddress(arg, y))); break;
+            case 0x61: adc(readMemory(xIndirectAddress(arg))); break;
+            case 0x71: adc(readMemory(indirectYReadAddress(arg))); break;
+
+            // AND
+            case 0x29: setA(a & arg, true); break;
+            case 0x25: setA(a & readMemory(arg), true); break;
+            case 0x35: setA(a & readMemory(zpIndexedAddress(arg, x)), true); break;
+            case 0x2D: setA(a & readMemory(arg), true); break;
+            case 0x3D: setA(a & readMemory(absoluteIndexedReadAddress(arg, x)), true); break;
+            case 0x39: setA(a & readMemory(absoluteIndexedReadAddress(arg, y)), true); break;
+            case 0x21: setA(a & readMemory(xIndirectAddress(arg)), true); break;
+            case 0x31: setA(a & readMemory(indirectYReadAddress(arg)), true); break;
+
+            // ASL
+            case 0x0A: setA(Util.asl(this, a), true); break;
+            case 0x06: address = arg; writeMemory(address, Util.asl(this, readModify(address))); break;
+            case 0x16: address = zpIndexedAddress(arg, x); writeMemory(address, Util.asl(this, readModify(address))); break;
+            case 0x0E: address = arg; writeMemory(address, Util.asl(this, readModify(address))); break;
+            case 0x1E: address = absoluteIndexedAddress(arg, x); writeMemory(address, Util.asl(this, readModify(address))); break;
+
+            // Branches
+            case 0x90: branch(carry == 0, arg); break;
+            case 0xB0: branch(carry != 0, arg); break;
+            case 0xF0: branch(zResult == 0, arg); break;
+            case 0x30: branch((nResult & 0x80) != 0, arg); break;
+            case 0xD0: branch(zResult != 0, arg); break;
+            case 0x10: branch((nResult & 0x80) == 0, arg); break;
+            case 0x50: branch((vResult & 0x80) == 0, arg); break;
+            case 0x70: branch((vResult & 0x80) != 0, arg); break;
+
+            // BIT
+            case 0x24: bit(readMemory(arg)); break;
+            case 0x2C: bit(readMemory(arg)); break;
+
+            // BRK
+            case 0x00:
+                serviceBRK();
+                return 1 + runProgram();
+
+            // Flags
+            case 0x18: carry = 0; break;
+            case 0xD8: clearFlag(Flag.DECIMAL); break;
+            case 0x58: clearFlag(Flag.INTERRUPT); break;
+            case 0xB8: vResult = 0; break;
+            case 0x38: carry = 1; break;
+            case 0xF8: setFlag(Flag.DECIMAL); break;
+            case 0x78: setFlag(Flag.INTERRUPT); break;
+
+            // CMP
+            case 0xC9: Util.cmp(this, a, arg); break;
+            case 0xC5: Util.cmp(this, a, readMemory(arg)); break;
+            case 0xD5: Util.cmp(this, a, readMemory(zpIndexedAddress(arg, x))); break;
+            case 0xCD: Util.cmp(this, a, readMemory(arg)); break;
+            case 0xDD: Util.cmp(this, a, readMemory(absoluteIndexedReadAddress(arg, x))); break;
+            case 0xD9: Util.cmp(this, a, readMemory(absoluteIndexedReadAddress(arg, y))); break;
+            case 0xC1: Util.cmp(this, a, readMemory(xIndirectAddress(arg))); break;
+            case 0xD1: Util.cmp(this, a, readMemory(indirectYReadAddress(arg))); break;
+
+            // CPX / CPY
+            case 0xE0: Util.cmp(this, x, arg); break;
+            case 0xE4: Util.cmp(this, x, readMemory(arg)); break;
+            case 0xEC: Util.cmp(this, x, readMemory(arg)); break;
+            case 0xC0: Util.cmp(this, y, arg); break;
+            case 0xC4: Util.cmp(this, y, readMemory(arg)); break;
+            case 0xCC: Util.cmp(this, y, readMemory(arg)); break;
+
+            // DEC / DEX / DEY
+            case 0xC6: address = arg; writeMemory(address, Util.dec(this, readModify(address))); break;
+            case 0xD6: address = zpIndexedAddress(arg, x); writeMemory(address, Util.dec(this, readModify(address))); break;
+            case 0xCE: address = arg; writeMemory(address, Util.dec(this, readModify(address))); break;
+            case 0xDE: address = absoluteIndexedAddress(arg, x); writeMemory(address, Util.dec(this, readModify(address))); break;
+            case 0xCA: setX((x - 1) & 0xFF, true); break;
+            case 0x88: setY((y - 1) & 0xFF, true); break;
+
+            // EOR
+            case 0x49: setA(a ^ arg, true); break;
+            case 0x45: setA(a ^ readMemory(arg), true); break;
+            case 0x55: setA(a ^ readMemory(zpIndexedAddress(arg, x)), true); break;
+            case 0x4D: setA(a ^ readMemory(arg), true); break;
+            case 0x5D: setA(a ^ readMemory(absoluteIndexedReadAddress(arg, x)), true); break;
+            case 0x59: setA(a ^ readMemory(absoluteIndexedReadAddress(arg, y)), true); break;
+            case 0x41: setA(a ^ readMemory(xIndirectAddress(arg)), true); break;
+            case 0x51: setA(a ^ readMemory(indirectYReadAddress(arg)), true); break;
+
+            // INC / INX / INY
+            case 0xE6: address = arg; writeMemory(address, Util.inc(this, readModify(address))); break;
+            case 0xF6: address = zpIndexedAddress(arg, x); writeMemory(address, Util.inc(this, readModify(address))); break;
+            case 0xEE: address = arg; writeMemory(address, Util.inc(this, readModify(address))); break;
+            case 0xFE: address = absoluteIndexedAddress(arg, x); writeMemory(address, Util.inc(this, readModify(address))); break;
+            case 0xE8: setX((x + 1) & 0xFF, true); break;
+            case 0xC8: setY((y + 1) & 0xFF, true); break;
+
+            // JMP / JSR
+            case 0x4C: pc = arg; break;
+            case 0x6C:
+                // JMP indirect bug - don't correct hi
+                address = arg;
+                pc = readMemory(address) | (readMemory((address & 0xFF00) | ((address + 1) & 0xFF)) << 8);
                 break;
-
-            case INDIRECT:
-                indirect();
+            case 0x20:
+                pushByte(((pc - 1) >>> 8) & 0xFF);
+                pushByte((pc - 1) & 0xFF);
+                pc = arg;
                 break;
 
-            case ABSOLUTE:
-                absolute();
+            // LDA
+            case 0xA9: setA(arg, true); break;
+            case 0xA5: setA(readMemory(arg), true); break;
+            case 0xB5: setA(readMemory(zpIndexedAddress(arg, x)), true); break;
+            case 0xAD: setA(readMemory(arg), true); break;
+            case 0xBD: setA(readMemory(absoluteIndexedReadAddress(arg, x)), true); break;
+            case 0xB9: setA(readMemory(absoluteIndexedReadAddress(arg, y)), true); break;
+            case 0xA1: setA(readMemory(xIndirectAddress(arg)), true); break;
+            case 0xB1: setA(readMemory(indirectYReadAddress(arg)), true); break;
+
+            // LDX
+            case 0xA2: setX(arg, true); break;
+            case 0xA6: setX(readMemory(arg), true); break;
+            case 0xB6: setX(readMemory(zpIndexedAddress(arg, y)), true); break;
+            case 0xAE: setX(readMemory(arg), true); break;
+            case 0xBE: setX(readMemory(absoluteIndexedReadAddress(arg, y)), true); break;
+
+            // LDY
+            case 0xA0: setY(arg, true); break;
+            case 0xA4: setY(readMemory(arg), true); break;
+            case 0xB4: setY(readMemory(zpIndexedAddress(arg, x)), true); break;
+            case 0xAC: setY(readMemory(arg), true); break;
+            case 0xBC: setY(readMemory(absoluteIndexedReadAddress(arg, x)), true); break;
+
+            // LSR
+            case 0x4A: setA(Util.lsr(this, a), true); break;
+            case 0x46: address = arg; writeMemory(address, Util.lsr(this, readModify(address))); break;
+            case 0x56: address = zpIndexedAddress(arg, x); writeMemory(address, Util.lsr(this, readModify(address))); break;
+            case 0x4E: address = arg; writeMemory(address, Util.lsr(this, readModify(address))); break;
+            case 0x5E: address = absoluteIndexedAddress(arg, x); writeMemory(address, Util.lsr(this, readModify(address))); break;
+
+            // NOP
+            case 0xEA: break;
+
+            // ORA
+            case 0x09: setA(a | arg, true); break;
+            case 0x05: setA(a | readMemory(arg), true); break;
+            case 0x15: setA(a | readMemory(zpIndexedAddress(arg, x)), true); break;
+            case 0x0D: setA(a | readMemory(arg), true); break;
+            case 0x1D: setA(a | readMemory(absoluteIndexedReadAddress(arg, x)), true); break;
+            case 0x19: setA(a | readMemory(absoluteIndexedReadAddress(arg, y)), true); break;
+            case 0x01: setA(a | readMemory(xIndirectAddress(arg)), true); break;
+            case 0x11: setA(a | readMemory(indirectYReadAddress(arg)), true); break;
+
+            // Stack
+            case 0x48: pushByte(a); break;
+            case 0x08: pushByte(Flag.RESERVED.set(Flag.BREAK.set(getFlags()))); break;
+            case 0x68: setA(popByte(), true); break;
+            case 0x28: setFlags(Flag.BREAK.clear(popByte())); break;
+
+            // ROL
+            case 0x2A: setA(Util.rol(this, a, carry != 0), true); break;
+            case 0x26: address = arg; writeMemory(address, Util.rol(this, readModify(address), carry != 0)); break;
+            case 0x36: address = zpIndexedAddress(arg, x); writeMemory(address, Util.rol(this, readModify(address), carry != 0)); break;
+            case 0x2E: address = arg; writeMemory(address, Util.rol(this, readModify(address), carry != 0)); break;
+            case 0x3E: address = absoluteIndexedAddress(arg, x); writeMemory(address, Util.rol(this, readModify(address), carry != 0)); break;
+
+            // ROR
+            case 0x6A: setA(Util.ror(this, a, carry != 0), true); break;
+            case 0x66: address = arg; writeMemory(address, Util.ror(this, readModify(address), carry != 0)); break;
+            case 0x76: address = zpIndexedAddress(arg, x); writeMemory(address, Util.ror(this, readModify(address), carry != 0)); break;
+            case 0x6E: address = arg; writeMemory(address, Util.ror(this, readModify(address), carry != 0)); break;
+            case 0x7E: address = absoluteIndexedAddress(arg, x); writeMemory(address, Util.ror(this, readModify(address), carry != 0)); break;
+
+            // RTI / RTS
+            case 0x40:
+                setFlags(Flag.BREAK.clear(popByte()));
+                lo = popByte();
+                pc = lohiToAddress(lo, popByte());
+                inIRQ = false;
+                inNMI = false;
                 break;
-
-            case ABSOLUTE_X:
-                absoluteIndexed(true);
+            case 0x60:
+                lo = popByte();
+                pc = lohiToAddress(lo, popByte());
+                runReturnTo();
+                incPC();
                 break;
 
-            case ABSOLUTE_Y:
-                absoluteIndexed(false);
-                break;
+            // SBC
+            case 0xE9: sbc(arg); break;
+            case 0xE5: sbc(readMemory(arg)); break;
+            case 0xF5: sbc(readMemory(zpIndexedAddress(arg, x))); break;
+            case 0xED: sbc(readMemory(arg)); break;
+            case 0xFD: sbc(readMemory(absoluteIndexedReadAddress(arg, x))); break;
+            case 0xF9: sbc(readMemory(absoluteIndexedReadAddress(arg, y))); break;
+            case 0xE1: sbc(readMemory(xIndirectAddress(arg))); break;
+            case 0xF1: sbc(readMemory(indirectYReadAddress(arg))); break;
+
+            // STA
+            case 0x85: writeMemory(arg, a); break;
+            case 0x95: writeMemory(zpIndexedAddress(arg, x), a); break;
+            case 0x8D: writeMemory(arg, a); break;
+            case 0x9D: writeMemory(absoluteIndexedAddress(arg, x), a); break;
+            case 0x99: writeMemory(absoluteIndexedAddress(arg, y), a); break;
+            case 0x81: writeMemory(xIndirectAddress(arg), a); break;
+            case 0x91: writeMemory(indirectYAddress(arg), a); break;
+
+            // STX / STY
+            case 0x86: writeMemory(arg, x); break;
+            case 0x96: writeMemory(zpIndexedAddress(arg, y), x); break;
+            case 0x8E: writeMemory(arg, x); break;
+            case 0x84: writeMemory(arg, y); break;
+            case 0x94: writeMemory(zpIndexedAddress(arg, x), y); break;
+            case 0x8C: writeMemory(arg, y); break;
+
+            // Transfers
+            case 0xAA: setX(a, true); break;
+            case 0xA8: setY(a, true); break;
+            case 0xBA: setX(sp, true); break;
+            case 0x8A: setA(x, true); break;
+            case 0x9A: setSP(x); break;
+            case 0x98: setA(y, true); break;
+
+            default: {
+                // Test and undocumented instructions - rewind to the operand and run the cycle-accurate program in one go
+                final InstructionKey key = instructionSet.decode(opcode);
+                this.instruction = key.getInstruction();
+                pc -= instructionLengths[opcode] - 1;
+                start(key.getMicroOps());
+                return 1 + runProgram();
+            }
+        }
+        return baseCycles[opcode] + extraCycles;
+    }
 
-            case ZPG:
-                zeroPage();
-                break;
+    // Run the rest of the current micro-op program in one go, returning the number of cycles it took
+    private int runProgram() {
+        int cycles = 0;
+        while (step < program.length) {
+            runMicroOp(program[step++]);
+            cycles++;
+        }
+        return cycles;
+    }
 
-            case ZPG_X:
-                zeroPageIndexed(true);
-                break;
+    private static int zpIndexedAddress(final int base, final int index) {
+        return (base + index) & 0xFF;
+    }
 
-            case ZPG_Y:
-                zeroPageIndexed(false);
-                break;
+    private static int absoluteIndexedAddress(final int base, final int index) {
+        return (base + index) & 0xFFFF;
+    }
 
-            case RELATIVE:
-                relative();
-                break;
+    private int absoluteIndexedReadAddress(final int base, final int index) {
+        if ((base & 0xFF) + index > 0xFF) {
+            extraCycles++;
+        }
+        return (base + index) & 0xFFFF;
+    }
 
-            case X_INDIRECT:
-                xIndirect();
-                break;
+    private int xIndirectAddress(final int zp) {
+        final int pointer = (zp + x) & 0xFF;
+        return lohiToAddress(readMemory(pointer), readMemory((pointer + 1) & 0xFF));
+    }
 
-            case INDIRECT_Y:
-                indirectY();
-                break;
+    private int indirectYAddress(final int zp) {
+        return (lohiToAddress(readMemory(zp), readMemory((zp + 1) & 0xFF)) + y) & 0xFFFF;
+    }
 
-            default:
-                throw new IllegalStateException(addressMode + ": unsupported address mode");
+    private int indirectYReadAddress(final int zp) {
+        final int base = lohiToAddress(readMemory(zp), readMemory((zp + 1) & 0xFF));
+        if ((base & 0xFF) + y > 0xFF) {
+            extraCycles++;
         }
+        return (base + y) & 0xFFFF;
     }
 
-    private void queue(final Runnable runnable) {
-        queue.add(runnable);
+    // Read for a read-modify-write instruction, including the write-back of the unmodified value
+    private int readModify(final int address) {
+        final int value = readMemory(address);
+        writeMemory(address, value);
+        return value;
     }
 
-    private void nop() {
-        // Do nothing
+    private void branch(final boolean condition, final int offset) {
+        if (condition) {
+            final int target = (pc + Util.signed(offset)) & 0xFFFF;
+            extraCycles += (((target ^ pc) & 0xFF00) == 0) ? 1 : 2;
+            pc = target;
+        }
     }
 
-    private void readEffectiveAddressIndirectX() {
-        queue(() -> lo = readFromAndIncrementPC());
-        queue(() -> {
-            readMemory(lo);
-            lo = (lo + getX()) & 0xFF;
-        });
-        queue(() -> elo = readMemory(lo));
-        queue(() -> ehi = readMemory((lo + 1) & 0xFF));
+    private void adc(final int value) {
+        Instruction.ADC.acceptValue(this, value);
     }
 
-    private void xIndirect() {
-        switch (instruction.getType()) {
-            case READ: {
+    private void sbc(final int value) {
+        Instruction.SBC.acceptValue(this, value);
+    }
 
-                readEffectiveAddressIndirectX();
+    private void bit(final int value) {
+        Instruction.BIT.acceptValue(this, value);
+    }
 
-                queue(() -> instruction.acceptValue(this, readMemory(elo, ehi)));
+    private void runMicroOp(final int op) {
+        switch (op) {
 
+            //
+            // Program counter / operand fetches
+            //
+            case MicroOp.FETCH_DISCARD:
+                readFromAndIncrementPC();
                 break;
-            }
-            case READ_MODIFY_WRITE: {
-
-                readEffectiveAddressIndirectX();
-
-                queue(() -> operand = readMemory(elo, ehi));
-                queue(() -> {
-                    writeMemory(elo, ehi, operand);
-                    operand = instruction.transformValue(this, operand);
-                });
-                queue(() -> writeMemory(elo, ehi, operand));
 
+            case MicroOp.FETCH_LO:
+                lo = readFromAndIncrementPC();
                 break;
-            }
-            case WRITE: {
 
-                readEffectiveAddressIndirectX();
+            case MicroOp.FETCH_ZP:
+                lo = readFromAndIncrementPC();
+                ea = lo;
+                break;
 
-                queue(() -> writeMemory(elo, ehi, instruction.readValue(this)));
+            case MicroOp.FETCH_HI:
+                hi = readFromAndIncrementPC();
+                ea = lohiToAddress(lo, hi);
+                break;
 
+            case MicroOp.FETCH_HI_INDEX_X:
+                ehi = readFromAndIncrementPC();
+                elo = lo + getX();
                 break;
-            }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for X indirect address mode");
-        }
-    }
+            case MicroOp.FETCH_HI_INDEX_Y:
+                ehi = readFromAndIncrementPC();
+                elo = lo + getY();
+                break;
 
-    private void readEffectiveAddressIndirectY() {
-        queue(() -> lo = readFromAndIncrementPC());
-        queue(() -> elo = readMemory(lo));
-        queue(() -> {
-            ehi = readMemory((lo + 1) & 0xFF);
-            elo += getY();
-        });
-    }
+            case MicroOp.READ_PC:
+                readFromPC();
+                break;
 
-    private void indirectY() {
+            case MicroOp.IDLE:
+                break;
 
-        switch (instruction.getType()) {
-            case READ: {
+            //
+            // Effective address calculation
+            //
+            case MicroOp.ZP_INDEX_X:
+                readMemory(lo);
+                ea = (lo + getX()) & 0xFF;
+                break;
 
-                readEffectiveAddressIndirectY();
+            case MicroOp.ZP_INDEX_Y:
+                readMemory(lo);
+                ea = (lo + getY()) & 0xFF;
+                break;
 
-                queue(() -> {
-                    operand = readMemory(elo, ehi);
-                    if (elo > 255) {
-                        ehi++;
-                        queue(() -> {
-                            operand = readMemory(elo, ehi);
-                            instruction.acceptValue(this, operand);
-                        });
-                    } else {
-                        instruction.acceptValue(this, operand);
-                    }
-                });
+            case MicroOp.POINTER_LO:
+                elo = readMemory(ea);
                 break;
-            }
-            case READ_MODIFY_WRITE: {
 
-                readEffectiveAddressIndirectY();
+            case MicroOp.POINTER_HI:
+                ehi = readMemory((ea + 1) & 0xFF);
+                ea = lohiToAddress(elo, ehi);
+                break;
 
-                queue(() -> {
-                    operand = readMemory(elo, ehi);
-                    if (elo > 255) {
-                        ehi++;
-                    }
-                });
-                queue(() -> operand = readMemory(elo, ehi));
-                queue(() -> {
-                    writeMemory(elo, ehi, operand);
-                    operand = instruction.transformValue(this, operand);
-                });
-                queue(() -> writeMemory(elo, ehi, operand));
+            case MicroOp.POINTER_HI_INDEX_Y:
+                ehi = readMemory((ea + 1) & 0xFF);
+                elo += getY();
                 break;
-            }
 
-            case WRITE: {
+            case MicroOp.FIX_ADDRESS:
+                readMemory(elo, ehi);
+                if (elo > 255) {
+                    ehi++;
+                }
+                ea = lohiToAddress(elo, ehi);
+                break;
 
-                readEffectiveAddressIndirectY();
+            //
+            // Instruction execution
+            //
+            case MicroOp.IMPLIED:
+                readFromPC();
+                instruction.performImpliedAction(this);
+                break;
 
-                queue(() -> {
-                    readMemory(elo, ehi);
-                    if (elo > 255) {
-                        ehi++;
-                    }
-                });
-                queue(() -> writeMemory(elo, ehi, instruction.readValue(this)));
+            case MicroOp.ACCUMULATOR:
+                readFromPC();
+                setA(instruction.transformValue(this, getA()), true);
                 break;
-            }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for indirect Y address mode");
-        }
-    }
+            case MicroOp.IMMEDIATE:
+                instruction.acceptValue(this, readFromAndIncrementPC());
+                break;
 
-    private void indirect() {
-        switch (instruction.getType()) {
-            case JUMP: {
+            case MicroOp.READ_ACCEPT:
+                instruction.acceptValue(this, readMemory(ea));
+                break;
 
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> hi = readFromAndIncrementPC());
-                queue(() -> elo = readMemory(lo, hi));
-                queue(() -> {
-                    ehi = readMemory((lo + 1) & 0xFF, hi);
-                    // JMP indirect bug - don't correct hi
-                    setPCL(elo);
-                    setPCH(ehi);
-                });
+            case MicroOp.READ_OPERAND:
+                operand = readMemory(ea);
+                break;
 
+            case MicroOp.WRITE_UNMODIFIED:
+                writeMemory(ea, operand);
+                operand = instruction.transformValue(this, operand);
                 break;
-            }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for indirect address mode");
-        }
-    }
+            case MicroOp.WRITE_MODIFIED:
+                writeMemory(ea, operand);
+                break;
 
-    private void immediate() {
-        queue.add(() -> instruction.acceptValue(this, readFromAndIncrementPC()));
-    }
+            case MicroOp.WRITE_REGISTER:
+                writeMemory(ea, instruction.readValue(this));
+                break;
 
-    private void accumulator() {
-        queue(() -> {
-            readFromPC();
-            setA(instruction.transformValue(this, getA()), true);
-        });
-    }
+            case MicroOp.READ_UNFIXED:
+                operand = readMemory(elo, ehi);
+                break;
 
-    private void implied() {
-        queue(() -> {
-            readFromPC();
-            instruction.performImpliedAction(this);
-        });
-    }
+            case MicroOp.READ_UNFIXED_ACCEPT_UNLESS_CROSSED:
+                operand = readMemory(elo, ehi);
+                acceptUnlessCrossed();
+                break;
 
-    public void maintainNZ(final int value) {
-        flags = Flag.ZERO.set(flags, (value == 0));
-        flags = Flag.NEGATIVE.set(flags, (value & 0x80) != 0);
-    }
-
-    private void absolute() {
-        switch (instruction.getType()) {
-            case JUMP: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    hi = readFromAndIncrementPC();
-                    setPCL(lo);
-                    setPCH(hi);
-                });
+            case MicroOp.ACCEPT_UNLESS_CROSSED:
+                acceptUnlessCrossed();
                 break;
-            }
-            case READ: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> hi = readFromAndIncrementPC());
-                queue(() -> instruction.acceptValue(this, readMemory(lo, hi)));
+
+            case MicroOp.READ_FIXED_ACCEPT:
+                operand = readMemory(elo, ehi);
+                instruction.acceptValue(this, operand);
                 break;
-            }
 
-            case READ_MODIFY_WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> hi = readFromAndIncrementPC());
-                queue(() -> operand = readMemory(lo, hi));
-                queue(() -> writeMemory(lo, hi, operand));
-                queue(() -> writeMemory(lo, hi, instruction.transformValue(this, operand)));
+            //
+            // Branches and jumps
+            //
+            case MicroOp.BRANCH:
+                operand = readFromAndIncrementPC();
+                if (!instruction.branchCondition(this)) {
+                    end();
+                }
                 break;
-            }
 
-            case WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> hi = readFromAndIncrementPC());
-                queue(() -> writeMemory(lo, hi, instruction.readValue(this)));
+            case MicroOp.BRANCH_TAKEN: {
+                lo = getPCL() + Util.signed(operand);
+                setPCL(lo);
+                final int oldPch = getPCH();
+                final int newPch;
+                if (lo < 0) {
+                    newPch = oldPch - 1;
+                } else if (lo > 255) {
+                    newPch = oldPch + 1;
+                } else {
+                    newPch = oldPch;
+                }
+                setPCH(newPch);
+                if (newPch == oldPch) {
+                    end();
+                }
                 break;
             }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for absolute address mode");
-        }
-    }
+            case MicroOp.JUMP_ABSOLUTE:
+                hi = readFromPC();
+                setPCL(lo);
+                setPCH(hi);
+                break;
 
-    private void relative() {
-        switch (instruction.getType()) {
-            case BRANCH: {
-                queue(() -> {
-                    operand = readFromAndIncrementPC();
-                    if (instruction.branchCondition(this)) {
-                        queue(() -> {
-                            lo = getPCL() + Util.signed(operand);
-                            setPCL(lo);
-                            final int oldPch = getPCH();
-                            final int newPch;
-                            if (lo < 0) {
-                                newPch = oldPch - 1;
-                            } else if (lo > 255) {
-                                newPch = oldPch + 1;
-                            } else {
-                                newPch = oldPch;
-                            }
-                            setPCH(newPch);
-
-                            if (newPch != oldPch) {
-                                queue(this::readFromPC);
-                            }
-                        });
-                    }
-                });
+            case MicroOp.JUMP_INDIRECT:
+                // JMP indirect bug - don't correct hi
+                ehi = readMemory((ea & 0xFF00) | ((ea + 1) & 0xFF));
+                setPCL(elo);
+                setPCH(ehi);
+                break;
 
+            //
+            // Stack
+            //
+            case MicroOp.INC_SP:
+                incSP();
                 break;
-            }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for relative address mode");
-        }
-    }
+            case MicroOp.PUSH_A:
+                pushByte(a);
+                break;
 
-    private void absoluteIndexed(final boolean x) {
-
-        switch (instruction.getType()) {
-
-            case READ: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    hi = readFromAndIncrementPC();
-                    elo = lo + ((x) ? getX() : getY());
-                });
-                queue(() -> operand = readMemory(elo, hi));
-                queue(() -> {
-                   if (elo > 255) {
-                       queue(() -> {
-                           operand = readMemory(elo, hi + 1);
-                           instruction.acceptValue(this, operand);
-                       });
-                   } else {
-                       instruction.acceptValue(this, operand);
-                   }
-                });
+            case MicroOp.PUSH_PCH:
+                pushByte(getPCH());
                 break;
-            }
 
-            case READ_MODIFY_WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    hi = readFromAndIncrementPC();
-                    elo = lo + ((x) ? getX() : getY());
-                });
-                queue(() -> {
-                    readMemory(elo, hi);
-                    ehi = (elo > 255) ? hi + 1 : hi;
-                });
-                queue(() -> operand = readMemory(elo, ehi));
-                queue(() -> writeMemory(elo, ehi, operand));
-                queue(() -> writeMemory(elo, ehi, instruction.transformValue(this, operand)));
+            case MicroOp.PUSH_PCL:
+                pushByte(getPCL());
                 break;
-            }
 
-            case WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    hi = readFromAndIncrementPC();
-                    elo = lo + ((x) ? getX() : getY());
-                });
-                queue(() -> {
-                    readMemory(elo, hi);
-                    ehi = (elo > 255) ? hi + 1 : hi;
-                });
-                queue(() -> writeMemory(elo, ehi, instruction.readValue(this)));
+            case MicroOp.PUSH_FLAGS:
+                pushByte(Flag.RESERVED.set(Flag.BREAK.clear(getFlags())));
                 break;
-            }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for absolute indexed address mode");
-        }
-    }
+            case MicroOp.PUSH_FLAGS_BRK:
+                pushByte(Flag.RESERVED.set(Flag.BREAK.set(getFlags())));
+                break;
 
-    private void zeroPageIndexed(final boolean x) {
+            case MicroOp.PULL_A:
+                setA(popByteNoIncrement(), true);
+                break;
 
-        switch (instruction.getType()) {
+            case MicroOp.PULL_FLAGS:
+                setFlags(Flag.BREAK.clear(popByteNoIncrement()));
+                break;
 
-            case READ: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    readMemory(lo);
-                    final int inc = (x) ? getX() : getY();
-                    elo = (lo + inc) & 0xFF;
-                });
-                queue(() -> instruction.acceptValue(this, readMemory(elo)));
+            case MicroOp.PULL_FLAGS_INC_SP:
+                setFlags(Flag.BREAK.clear(popByteNoIncrement()));
+                incSP();
                 break;
-            }
 
-            case READ_MODIFY_WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    readMemory(lo);
-                    final int inc = (x) ? getX() : getY();
-                    elo = (lo + inc) & 0xFF;
-                });
-                queue(() -> operand = readMemory(elo));
-                queue(() -> {
-                    writeMemory(elo, operand);
-                    operand = instruction.transformValue(this, operand);
-                });
-                queue(() -> writeMemory(elo, operand));
+            case MicroOp.PULL_PCL_INC_SP:
+                setPCL(popByteNoIncrement());
+                incSP();
                 break;
-            }
 
-            case WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> {
-                    readMemory(lo);
-                    final int inc = (x) ? getX() : getY();
-                    elo = (lo + inc) & 0xFF;
-                });
-                queue(() -> writeMemory(elo, instruction.readValue(this)));
+            case MicroOp.PULL_PCH:
+                setPCH(popByteNoIncrement());
                 break;
-            }
 
-            default:
-                throw new IllegalStateException(instruction + ": not implemented for zero page indexed address mode");
-        }
-    }
+            case MicroOp.PULL_PCH_RTI:
+                setPCH(popByteNoIncrement());
+                inIRQ = false;
+                inNMI = false;
+                break;
 
-    private void zeroPage() {
-        switch (instruction.getType()) {
+            case MicroOp.RTS_RETURN:
+                runReturnTo();
+                incPC();
+                break;
 
-            case READ: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> instruction.acceptValue(this, readMemory(lo)));
+            //
+            // Interrupts
+            //
+            case MicroOp.VECTOR_LO_BRK:
+            case MicroOp.VECTOR_LO_IRQ:
+                if (nmiRequested) {
+                    jumpVector = NMI_JUMP_VECTOR;
+                    nmiRequested = false;
+                    inNMI = true;
+                } else {
+                    jumpVector = IRQ_JUMP_VECTOR;
+                    inIRQ = (op == MicroOp.VECTOR_LO_IRQ);
+                }
+                setPCL(readMemory(jumpVector));
                 break;
-            }
 
-            case READ_MODIFY_WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> operand = readMemory(lo));
-                queue(() -> writeMemory(lo, operand));
-                queue(() -> writeMemory(lo, instruction.transformValue(this, operand)));
+            case MicroOp.VECTOR_LO_RESET:
+                jumpVector = CODE_START_VECTOR;
+                nmiRequested = false;
+                inNMI = false;
+                inIRQ = false;
+                setPCL(readMemory(jumpVector));
                 break;
-            }
 
-            case WRITE: {
-                queue(() -> lo = readFromAndIncrementPC());
-                queue(() -> writeMemory(lo, instruction.readValue(this)));
+            case MicroOp.VECTOR_HI:
+            case MicroOp.VECTOR_HI_RESET:
+                setPCH(readMemory(jumpVector + 1));
+                servicingInterrupt = false;
+                flags = Flag.INTERRUPT.set(flags);
+                if (op == MicroOp.VECTOR_HI_RESET) {
+                    reset();
+                }
                 break;
-            }
 
             default:
-                throw new IllegalStateException(instruction + ": not implemented for zero page address mode");
+                throw new IllegalStateException(op + ": unknown micro-op");
         }
     }
 
+    public void maintainNZ(final int value) {
+        nResult = value;
+        zResult = value;
+    }
+
+    public void setCarry(final boolean carry) {
+        this.carry = (carry) ? 1 : 0;
+    }
+
+    // V is set if bit 7 of the given value is set
+    public void setOverflowResult(final int value) {
+        vResult = value;
+    }
+
     public void setA(final int value, final boolean maintainNZ) {
         this.a = value & 0xFF;
         if (maintainNZ) {
@@ -970,6 +1199,12 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     }
 
     private int readMemory(final int address) {
+        if (pageTable != null) {
+            final int value = pageTable.readByte(address);
+            if (value >= 0) {
+                return value;
+            }
+        }
         return memory.readByte(address);
     }
 
@@ -978,7 +1213,9 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     }
 
     private void writeMemory(final int address, final int value) {
-        memory.writeByte(address, value);
+        if (pageTable == null || !pageTable.writeByte(address, value)) {
+            memory.writeByte(address, value);
+        }
     }
 
     private void writeMemory(final int lo, final int hi, final int value) {
@@ -989,28 +1226,72 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         return (lo & 0xFF) | ((hi & 0xFF) << 8);
     }
 
+    public int getFlags() {
+        int ret = flags;
+        ret = Flag.NEGATIVE.set(ret, (nResult & 0x80) != 0);
+        ret = Flag.ZERO.set(ret, zResult == 0);
+        ret = Flag.CARRY.set(ret, carry != 0);
+        ret = Flag.OVERFLOW.set(ret, (vResult & 0x80) != 0);
+        return ret;
+    }
+
+    public void setFlags(final int value) {
+        flags = value & 0xFF;
+        nResult = value & 0x80;
+        zResult = Flag.ZERO.isSet(value) ? 0 : 1;
+        carry = Flag.CARRY.isSet(value) ? 1 : 0;
+        vResult = Flag.OVERFLOW.isSet(value) ? 0x80 : 0;
+    }
+
     public boolean isFlagSet(final Flag flag) {
-        return flag.isSet(flags);
+        switch (flag) {
+            case NEGATIVE:
+                return (nResult & 0x80) != 0;
+            case ZERO:
+                return zResult == 0;
+            case CARRY:
+                return carry != 0;
+            case OVERFLOW:
+                return (vResult & 0x80) != 0;
+            default:
+                return flag.isSet(flags);
+        }
     }
 
     public boolean isFlagClear(final Flag flag) {
-        return flag.isClear(flags);
+        return !isFlagSet(flag);
     }
 
     public int getFlagValue(final Flag flag) {
-        return flag.isSet(flags) ? 1 : 0;
+        return isFlagSet(flag) ? 1 : 0;
     }
 
     public void setFlag(final Flag f) {
-        flags = f.set(flags);
+        setFlag(f, true);
     }
 
     public void setFlag(final Flag f, final boolean set) {
-        flags = (set) ? f.set(flags) : f.clear(flags);
+        switch (f) {
+            case NEGATIVE:
+                nResult = (set) ? 0x80 : 0;
+                break;
+            case ZERO:
+                zResult = (set) ? 0 : 1;
+                break;
+            case CARRY:
+                carry = (set) ? 1 : 0;
+                break;
+            case OVERFLOW:
+                vResult = (set) ? 0x80 : 0;
+                break;
+            default:
+                flags = f.set(flags, set);
+                break;
+        }
     }
 
     public void clearFlag(final Flag f) {
-        flags = f.clear(flags);
+        setFlag(f, false);
     }
 
     private static void checkSpInBounds(final int sp) {
@@ -1030,7 +1311,7 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
     public void pushByteNoIncrement(final int value) {
         checkSpInBounds(sp);
         Util.checkUnsignedByte(value);
-        memory.writeByte(STACK_START + sp, value);
+        writeMemory(STACK_START + sp, value);
     }
 
     public void pushWord(final int value) {
@@ -1054,11 +1335,11 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
 
     public int popByteNoIncrement() {
         checkSpInBounds(sp);
-        return memory.readByte(STACK_START + sp);
+        return readMemory(STACK_START + sp);
     }
 
     public int peekByte(int offset) {
-        return memory.readByte(STACK_START + sp + offset);
+        return readMemory(STACK_START + sp + offset);
     }
 
     public String toString() {
@@ -1073,7 +1354,7 @@ public final class Cpu implements Device, ClockListener, Runnable, Scheduler {
         s.append("  X = ").append(Util.formatHexByte(getX()));
         s.append("  Y = ").append(Util.formatHexByte(getY()));
         s.append("  SP = ").append(Util.formatHexByte(getSP()));
-        s.append("  SR = ").append(Flag.toString(flags));
+        s.append("  SR = ").append(Flag.toString(getFlags()));
         s.append("  irq = " + isIRQ());
         s.append("  nmi = " + isNMI());
         return s.toString();
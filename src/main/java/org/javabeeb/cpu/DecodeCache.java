@@ -0,0 +1,244 @@
+package org.javabeeb.cpu;
+
+import org.javabeeb.memory.Memory;
+import org.javabeeb.memory.PageWriteListener;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+//
+// Decoded instructions for every address, as if an instruction started there, held in flat int arrays - one array per
+// code bank (see Memory.getCodeBank), covering just the addresses the bank can occupy. Each entry packs the opcode,
+// operand and instruction length, and the opcode indexes straight into tables of instructions and their micro-op
+// programs. A bank is decoded
+// in full the first time it is used; entries in a page written to afterwards (RAM, or ROM having an intercept
+// installed) are decoded again one at a time as they are next used. Pages written to over and over (data sharing a
+// page with code, or self-modifying code) cost more to keep decoding than they save, so are given up on.
+//
+final class DecodeCache implements PageWriteListener {
+
+    private static final int BANK_COUNT = 17;
+    private static final int NOT_DECODED = 0;
+    private static final int DECODED = 1 << 30;
+
+    // Page classifications (other than actual code banks)
+    private static final int NOT_CACHEABLE = -1;
+    private static final int PAGED = -2;
+
+    // How many times a page can be written to before it is no longer decoded
+    private static final int MAX_PAGE_WRITES = 16;
+
+    private final Memory memory;
+    private final int[] instructionLengths;
+    private final Instruction[] instructions = new Instruction[256];
+    private final int[][] microOps = new int[256][];
+    private final int[] pageBanks = new int[256];
+    private final int[][] entries = new int[BANK_COUNT][];
+
+    // Bank 0 covers the whole address space, the paged banks only the addresses they are paged into
+    private final int[] bankStarts = new int[BANK_COUNT];
+    private final int[] bankSizes = new int[BANK_COUNT];
+
+    // One bit per page of each bank that is being watched for us - a watch stays until it fires
+    private final long[] watchedPages = new long[BANK_COUNT * 4];
+
+    private final int[] pageWrites = new int[256];
+    private final boolean[] writtenOften = new boolean[256];
+
+    // Pages in bank 0 that haven't been written often
+    private final boolean[] fastPages = new boolean[256];
+
+    DecodeCache(final Memory memory, final InstructionSet instructionSet) {
+        this.memory = Objects.requireNonNull(memory);
+        this.instructionLengths = instructionSet.getInstructionLengths();
+        for (int opcode = 0; opcode < 256; opcode++) {
+            if (instructionLengths[opcode] != 0) {
+                final InstructionKey key = instructionSet.decode(opcode);
+                instructions[opcode] = key.getInstruction();
+                microOps[opcode] = key.getMicroOps();
+            }
+        }
+        int firstPaged = 256;
+        int lastPaged = -1;
+        for (int page = 0; page < 256; page++) {
+            final int bank = memory.getCodeBank(page << 8);
+            pageBanks[page] = (bank > 0) ? PAGED : bank;
+            fastPages[page] = (bank == 0);
+            if (bank > 0) {
+                firstPaged = Math.min(firstPaged, page);
+                lastPaged = page;
+            }
+        }
+        bankSizes[0] = 65536;
+        for (int bank = 1; bank < BANK_COUNT; bank++) {
+            bankStarts[bank] = firstPaged << 8;
+            bankSizes[bank] = Math.max(0, lastPaged + 1 - firstPaged) << 8;
+        }
+    }
+
+    static int getOpcode(final int entry) {
+        return entry & 0xFF;
+    }
+
+    static int getOperand(final int entry) {
+        return (entry >>> 8) & 0xFFFF;
+    }
+
+    // Zero if the instruction couldn't be decoded and must be read from memory
+    static int getLength(final int entry) {
+        return (entry >>> 24) & 0x3;
+    }
+
+    // Only for entries with a length
+    Instruction getInstruction(final int entry) {
+        return instructions[entry & 0xFF];
+    }
+
+    // Only for entries with a length
+    int[] getMicroOps(final int entry) {
+        return microOps[entry & 0xFF];
+    }
+
+    // The lowest address of a bank, and how many addresses it covers
+    int getBankStart(final int bank) {
+        return bankStarts[bank];
+    }
+
+    int getBankSize(final int bank) {
+        return bankSizes[bank];
+    }
+
+    int getBank(final int address) {
+        final int bank = pageBanks[(address >>> 8) & 0xFF];
+        return (bank == PAGED) ? memory.getCodeBank(address) : bank;
+    }
+
+    // Kept small enough to be inlined into the fetch - anything other than an entry already decoded in bank 0 is
+    // left to getSlowly
+    int get(final int address) {
+        final int[] bankEntries = entries[0];
+        if (bankEntries != null && address <= 0xFFFF && fastPages[address >>> 8]) {
+            final int entry = bankEntries[address];
+            if (entry != NOT_DECODED) {
+                return entry;
+            }
+        }
+        return getSlowly(address);
+    }
+
+    private int getSlowly(final int address) {
+        if (address > 0xFFFF || writtenOften[address >>> 8]) {
+            return DECODED;
+        }
+        final int bank = getBank(address);
+        if (bank < 0) {
+            return DECODED;
+        }
+        int[] bankEntries = entries[bank];
+        if (bankEntries == null) {
+            bankEntries = decodeBank(bank);
+        }
+        final int index = address - bankStarts[bank];
+        final int entry = bankEntries[index];
+        if (entry != NOT_DECODED) {
+            return entry;
+        }
+        final int decoded = decode(address, bank);
+        bankEntries[index] = decoded;
+        watch(address, getLength(decoded), bank);
+        return decoded;
+    }
+
+    // The memory may have been replaced without any watches firing
+    void clear() {
+        Arrays.fill(entries, null);
+        Arrays.fill(watchedPages, 0L);
+        Arrays.fill(pageWrites, 0);
+        Arrays.fill(writtenOften, false);
+        for (int page = 0; page < 256; page++) {
+            fastPages[page] = (pageBanks[page] == 0);
+        }
+    }
+
+    @Override
+    public void pageWritten(final int page) {
+        if (++pageWrites[page] > MAX_PAGE_WRITES) {
+            writtenOften[page] = true;
+            fastPages[page] = false;
+        }
+        final int start = page << 8;
+        for (int bank = 0; bank < BANK_COUNT; bank++) {
+            watchedPages[bank * 4 + (page >>> 6)] &= ~(1L << page);
+            final int[] bankEntries = entries[bank];
+            if (bankEntries != null && isPageInBank(page, bank)) {
+                final int index = start - bankStarts[bank];
+                Arrays.fill(bankEntries, index, index + 256, NOT_DECODED);
+                // Instructions at the end of the previous page have operands in this one
+                if (page > 0 && isPageInBank(page - 1, bank)) {
+                    bankEntries[index - 1] = NOT_DECODED;
+                    bankEntries[index - 2] = NOT_DECODED;
+                }
+            }
+        }
+    }
+
+    private boolean isPageInBank(final int page, final int bank) {
+        return pageBanks[page] == ((bank == 0) ? 0 : PAGED);
+    }
+
+    private int[] decodeBank(final int bank) {
+        final int[] bankEntries = new int[bankSizes[bank]];
+        entries[bank] = bankEntries;
+        for (int page = 0; page < 256; page++) {
+            if (getBank(page << 8) == bank) {
+                decodePage(bankEntries, bank, page);
+            }
+        }
+        return bankEntries;
+    }
+
+    private void decodePage(final int[] bankEntries, final int bank, final int page) {
+        final int start = page << 8;
+        final int index = start - bankStarts[bank];
+        for (int i = 0; i < 256; i++) {
+            bankEntries[index + i] = decode(start + i, bank);
+        }
+        watch(start + 255, 3, bank);
+    }
+
+    private void watch(final int address, final int length, final int bank) {
+        watchPage(address, bank);
+        final int last = address + length - 1;
+        if ((last >>> 8) != (address >>> 8) && last <= 0xFFFF && getBank(last) == bank) {
+            watchPage(last, bank);
+        }
+    }
+
+    // Asking again for a page already watched would only cost the memory a remap
+    private void watchPage(final int address, final int bank) {
+        final int page = address >>> 8;
+        final int word = bank * 4 + (page >>> 6);
+        if ((watchedPages[word] & (1L << page)) == 0L) {
+            watchedPages[word] |= (1L << page);
+            memory.watchPage(address, this);
+        }
+    }
+
+    private int decode(final int address, final int bank) {
+        final int opcode = memory.readByte(address);
+        final int length = instructionLengths[opcode];
+        final int last = address + length - 1;
+        if (length == 0 || last > 0xFFFF || getBank(last) != bank) {
+            return DECODED | opcode;
+        }
+        final int operand;
+        if (length == 3) {
+            operand = memory.readByte(address + 1) | (memory.readByte(address + 2) << 8);
+        } else if (length == 2) {
+            operand = memory.readByte(address + 1);
+        } else {
+            operand = 0;
+        }
+        return DECODED | (length << 24) | (operand << 8) | opcode;
+    }
+}
@@ -0,0 +1,26 @@
+package org.javabeeb.cpu;
+
+import org.javabeeb.clock.ClockDefinition;
+
+public enum ExecutionMode {
+
+    // Cycle-exact bus timing when the clock is throttled, whole instructions otherwise (e.g. ClockDefinition.MAX)
+    AUTOMATIC,
+
+    // One bus cycle per clock tick
+    CYCLE_ACCURATE,
+
+    // A whole instruction on its first clock tick, then stall for the rest of its cycles
+    INSTRUCTION;
+
+    public boolean isInstructionGranular(final ClockDefinition clockDefinition) {
+        switch (this) {
+            case CYCLE_ACCURATE:
+                return false;
+            case INSTRUCTION:
+                return true;
+            default:
+                return !clockDefinition.isThrottled();
+        }
+    }
+}
@@ -7,6 +7,8 @@ public final class InstructionKey {
     private final Instruction instruction;
     private final AddressMode addressMode;
 
+    private int[] microOps;
+
     public InstructionKey(final Instruction instruction, final AddressMode addressMode) {
         this.instruction = Objects.requireNonNull(instruction);
         this.addressMode = Objects.requireNonNull(addressMode);
@@ -20,6 +22,14 @@ public final class InstructionKey {
         return addressMode;
     }
 
+    // The cycle-by-cycle program for this instruction (see MicroOp)
+    int[] getMicroOps() {
+        if (microOps == null) {
+            microOps = MicroOp.compile(this);
+        }
+        return microOps;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
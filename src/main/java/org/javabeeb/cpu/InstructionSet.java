@@ -189,6 +189,7 @@ public final class InstructionSet {
         instructionSupportedAddressModes.computeIfAbsent(instruction, k -> EnumSet.noneOf(AddressMode.class)).add(addressMode);
         addressModeToInstructions.computeIfAbsent(addressMode, k -> EnumSet.noneOf(Instruction.class)).add(instruction);
         codeToInstruction[opCode] = key;
+        key.getMicroOps();
     }
 
     public InstructionKey decode(final int opcode) {
@@ -199,6 +200,32 @@ public final class InstructionSet {
         return ret;
     }
 
+    // Cycles taken by each opcode when no page is crossed and no branch is taken (zero if unrecognised)
+    int[] getBaseCycles() {
+        final int[] ret = new int[256];
+        for (int opcode = 0; opcode < 256; opcode++) {
+            final InstructionKey key = codeToInstruction[opcode];
+            if (key != null) {
+                ret[opcode] = (key.getInstruction() == Instruction.BRK) ?
+                        MicroOp.BRK_PROGRAM.length + 1 :
+                        MicroOp.baseCycles(key.getMicroOps());
+            }
+        }
+        return ret;
+    }
+
+    // Length in bytes (opcode plus parameters) of each opcode (zero if unrecognised)
+    int[] getInstructionLengths() {
+        final int[] ret = new int[256];
+        for (int opcode = 0; opcode < 256; opcode++) {
+            final InstructionKey key = codeToInstruction[opcode];
+            if (key != null) {
+                ret[opcode] = 1 + key.getAddressMode().getParameterByteCount();
+            }
+        }
+        return ret;
+    }
+
     public List<Integer> encode(final Instruction instruction, final AddressMode addressMode, final int parm) {
         final InstructionKey key = new InstructionKey(instruction, addressMode);
         if (!instructionToCode.containsKey(key)) {
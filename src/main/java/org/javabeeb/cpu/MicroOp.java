@@ -0,0 +1,208 @@
+package org.javabeeb.cpu;
+
+import java.util.Arrays;
+
+//
+// Micro-operations used by the cycle-accurate core. Each instruction is compiled once (per InstructionKey) into a
+// sequence of these, and the CPU runs one of them per clock cycle. Ops marked 'may end' can finish the program early
+// (e.g. a branch that is not taken or an indexed read that doesn't cross a page).
+//
+final class MicroOp {
+
+    // Program counter / operand fetches
+    static final int FETCH_DISCARD = 0;                 // read PC, increment PC
+    static final int FETCH_LO = 1;                      // lo = read PC, increment PC
+    static final int FETCH_ZP = 2;                      // ea = read PC, increment PC
+    static final int FETCH_HI = 3;                      // hi = read PC, increment PC, ea = lo | hi
+    static final int FETCH_HI_INDEX_X = 4;              // ehi = read PC, increment PC, elo = lo + X
+    static final int FETCH_HI_INDEX_Y = 5;              // ehi = read PC, increment PC, elo = lo + Y
+    static final int READ_PC = 6;                       // dummy read of PC
+    static final int IDLE = 7;                          // internal operation - no bus activity
+
+    // Effective address calculation
+    static final int ZP_INDEX_X = 8;                    // dummy read of lo, ea = (lo + X) & 0xFF
+    static final int ZP_INDEX_Y = 9;                    // dummy read of lo, ea = (lo + Y) & 0xFF
+    static final int POINTER_LO = 10;                   // elo = read ea
+    static final int POINTER_HI = 11;                   // ehi = read (ea + 1) wrapped in page, ea = elo | ehi
+    static final int POINTER_HI_INDEX_Y = 12;           // ehi = read (ea + 1) wrapped in page, elo += Y
+    static final int FIX_ADDRESS = 13;                  // dummy read of unfixed address, ea = fixed address
+
+    // Instruction execution
+    static final int IMPLIED = 14;                      // dummy read of PC, perform implied action
+    static final int ACCUMULATOR = 15;                  // dummy read of PC, transform A
+    static final int IMMEDIATE = 16;                    // accept read PC, increment PC
+    static final int READ_ACCEPT = 17;                  // accept read ea
+    static final int READ_OPERAND = 18;                 // operand = read ea
+    static final int WRITE_UNMODIFIED = 19;             // write operand to ea, operand = transformed operand
+    static final int WRITE_MODIFIED = 20;               // write operand to ea
+    static final int WRITE_REGISTER = 21;               // write register value to ea
+    static final int READ_UNFIXED = 22;                 // operand = read unfixed address
+    static final int ACCEPT_UNLESS_CROSSED = 23;        // (may end) accept operand unless page crossed
+    static final int READ_UNFIXED_ACCEPT_UNLESS_CROSSED = 24; // (may end) operand = read unfixed address, accept unless page crossed
+    static final int READ_FIXED_ACCEPT = 25;            // accept read of fixed address
+
+    // Branches and jumps
+    static final int BRANCH = 26;                       // (may end) operand = read PC, increment PC, end if not taken
+    static final int BRANCH_TAKEN = 27;                 // (may end) add offset to PCL, end if page not crossed
+    static final int JUMP_ABSOLUTE = 28;                // hi = read PC, PC = lo | hi
+    static final int JUMP_INDIRECT = 29;                // ehi = read (ea + 1) wrapped in page, PC = elo | ehi
+
+    // Stack
+    static final int INC_SP = 30;
+    static final int PUSH_A = 31;
+    static final int PUSH_PCH = 32;
+    static final int PUSH_PCL = 33;
+    static final int PUSH_FLAGS = 34;                   // push flags with BREAK clear
+    static final int PUSH_FLAGS_BRK = 35;               // push flags with BREAK set
+    static final int PULL_A = 36;
+    static final int PULL_FLAGS = 37;
+    static final int PULL_FLAGS_INC_SP = 38;
+    static final int PULL_PCL_INC_SP = 39;
+    static final int PULL_PCH = 40;
+    static final int PULL_PCH_RTI = 41;
+    static final int RTS_RETURN = 42;                   // run any 'return to' hook and increment PC
+
+    // Interrupts
+    static final int VECTOR_LO_BRK = 43;
+    static final int VECTOR_LO_IRQ = 44;
+    static final int VECTOR_LO_RESET = 45;
+    static final int VECTOR_HI = 46;
+    static final int VECTOR_HI_RESET = 47;
+
+    static final int[] EMPTY_PROGRAM = {};
+
+    static final int[] BRK_PROGRAM = {
+            FETCH_DISCARD, PUSH_PCH, PUSH_PCL, PUSH_FLAGS_BRK, VECTOR_LO_BRK, VECTOR_HI
+    };
+
+    static final int[] IRQ_PROGRAM = {
+            PUSH_PCH, PUSH_PCL, PUSH_FLAGS, VECTOR_LO_IRQ, VECTOR_HI
+    };
+
+    static final int[] RESET_PROGRAM = {
+            PUSH_PCH, PUSH_PCL, PUSH_FLAGS, VECTOR_LO_RESET, VECTOR_HI_RESET
+    };
+
+    private MicroOp() {
+    }
+
+    static int[] compile(final InstructionKey key) {
+        final Instruction instruction = key.getInstruction();
+        switch (instruction) {
+            case BRK:
+                // Handled as an interrupt
+                return EMPTY_PROGRAM;
+            case RTI:
+                return of(READ_PC, INC_SP, PULL_FLAGS_INC_SP, PULL_PCL_INC_SP, PULL_PCH_RTI);
+            case RTS:
+                return of(READ_PC, INC_SP, PULL_PCL_INC_SP, PULL_PCH, RTS_RETURN);
+            case PHA:
+                return of(READ_PC, PUSH_A);
+            case PHP:
+                return of(READ_PC, PUSH_FLAGS_BRK);
+            case PLA:
+                return of(READ_PC, INC_SP, PULL_A);
+            case PLP:
+                return of(READ_PC, INC_SP, PULL_FLAGS);
+            case JSR:
+                return of(FETCH_LO, IDLE, PUSH_PCH, PUSH_PCL, JUMP_ABSOLUTE);
+        }
+
+        final InstructionType type = instruction.getType();
+        final AddressMode addressMode = key.getAddressMode();
+        switch (addressMode) {
+            case ACCUMULATOR:
+                return of(ACCUMULATOR);
+
+            case IMPLIED:
+                return of(IMPLIED);
+
+            case IMMEDIATE:
+                return of(IMMEDIATE);
+
+            case INDIRECT:
+                if (type == InstructionType.JUMP) {
+                    return of(FETCH_LO, FETCH_HI, POINTER_LO, JUMP_INDIRECT);
+                }
+                break;
+
+            case RELATIVE:
+                if (type == InstructionType.BRANCH) {
+                    return of(BRANCH, BRANCH_TAKEN, READ_PC);
+                }
+                break;
+
+            case ABSOLUTE:
+                if (type == InstructionType.JUMP) {
+                    return of(FETCH_LO, JUMP_ABSOLUTE);
+                }
+                return withTail(type, FETCH_LO, FETCH_HI);
+
+            case ZPG:
+                return withTail(type, FETCH_ZP);
+
+            case ZPG_X:
+                return withTail(type, FETCH_LO, ZP_INDEX_X);
+
+            case ZPG_Y:
+                return withTail(type, FETCH_LO, ZP_INDEX_Y);
+
+            case X_INDIRECT:
+                return withTail(type, FETCH_LO, ZP_INDEX_X, POINTER_LO, POINTER_HI);
+
+            case ABSOLUTE_X:
+            case ABSOLUTE_Y: {
+                final int fetchHi = (addressMode == AddressMode.ABSOLUTE_X) ? FETCH_HI_INDEX_X : FETCH_HI_INDEX_Y;
+                if (type == InstructionType.READ) {
+                    return of(FETCH_LO, fetchHi, READ_UNFIXED, ACCEPT_UNLESS_CROSSED, READ_FIXED_ACCEPT);
+                }
+                return withTail(type, FETCH_LO, fetchHi, FIX_ADDRESS);
+            }
+
+            case INDIRECT_Y:
+                if (type == InstructionType.READ) {
+                    return of(FETCH_ZP, POINTER_LO, POINTER_HI_INDEX_Y, READ_UNFIXED_ACCEPT_UNLESS_CROSSED, READ_FIXED_ACCEPT);
+                }
+                return withTail(type, FETCH_ZP, POINTER_LO, POINTER_HI_INDEX_Y, FIX_ADDRESS);
+        }
+        throw new IllegalStateException(key + ": unsupported instruction/address mode");
+    }
+
+    // Cycles taken by an instruction (including its opcode fetch) when it finishes at its first 'may end' op - i.e.
+    // no page is crossed and no branch is taken
+    static int baseCycles(final int[] program) {
+        for (int i = 0; i < program.length; i++) {
+            switch (program[i]) {
+                case ACCEPT_UNLESS_CROSSED:
+                case READ_UNFIXED_ACCEPT_UNLESS_CROSSED:
+                case BRANCH:
+                    return i + 2;
+            }
+        }
+        return program.length + 1;
+    }
+
+    // Append the ops that act on the effective address once it has been computed
+    private static int[] withTail(final InstructionType type, final int... head) {
+        switch (type) {
+            case READ:
+                return append(head, READ_ACCEPT);
+            case READ_MODIFY_WRITE:
+                return append(head, READ_OPERAND, WRITE_UNMODIFIED, WRITE_MODIFIED);
+            case WRITE:
+                return append(head, WRITE_REGISTER);
+            default:
+                throw new IllegalStateException(type + ": unsupported instruction type");
+        }
+    }
+
+    private static int[] append(final int[] head, final int... tail) {
+        final int[] ret = Arrays.copyOf(head, head.length + tail.length);
+        System.arraycopy(tail, 0, ret, head.length, tail.length);
+        return ret;
+    }
+
+    private static int[] of(final int... ops) {
+        return ops;
+    }
+}
@@ -24,6 +24,7 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
 
     private final SystemVIA systemVIA;
     private final List<Runnable> newFrameListeners = new ArrayList<>();
+    private VideoRegisterLog registerLog;
 
     @StateKey(key = "v0")
     private int v0;
@@ -63,10 +64,41 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
 
     @Override
     public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
+        advance(clockDefinition, 1, elapsedNanos);
+    }
+
+    @Override
+    public void advance(final ClockDefinition clockDefinition, final int inputCycles, final long elapsedNanos) {
+        long cycles = clockDefinition.computeElapsedCycles(CLOCK_SPEED, inputCycleCount, tickCount, elapsedNanos, inputCycles);
+        inputCycleCount += inputCycles;
+
+        // The same as updating once per cycle, but skipping straight over cycles on which nothing happens
+        update();
+        while (cycles > 0) {
+            final long skip = Math.min(cycles, cyclesUntilNextUpdate());
+            tickCount += skip;
+            cycles -= skip;
+            if (cycles > 0) {
+                update();
+            }
+        }
+    }
+
+    private int getSyncPulseOnCycles() {
         final int cyclesPerRow = VERTICAL_SYNC_2MHZ_CYCLES / getVerticalTotalChars();
+        return getVerticalSyncPosition() * cyclesPerRow;
+    }
+
+    private int getSyncPulseOffCycles() {
         final int cyclesPerScanline = VERTICAL_SYNC_2MHZ_CYCLES / (getVerticalTotalChars() * 8);
-        final int syncPulseOnCycles = getVerticalSyncPosition() * cyclesPerRow;
-        final int syncPulseOffCycles = syncPulseOnCycles + getVerticalSyncPulseWidth() * cyclesPerScanline;
+        return getSyncPulseOnCycles() + getVerticalSyncPulseWidth() * cyclesPerScanline;
+    }
+
+    private long getCursorToggleCycles() {
+        return VERTICAL_SYNC_2MHZ_CYCLES * ((isCursorFastBlink()) ? FAST_CURSOR_VSYNCS : SLOW_CURSOR_VSYNCS);
+    }
+
+    private void update() {
         final long cyclesSinceLastNewFrame = tickCount - lastEndOfFrame;
 
         if (!firedNewFrame) {
@@ -75,21 +107,20 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
             firedNewFrame = true;
         }
 
-        if (!firedSyncOn && cyclesSinceLastNewFrame >= syncPulseOnCycles) {
+        if (!firedSyncOn && cyclesSinceLastNewFrame >= getSyncPulseOnCycles()) {
             // Fire vsync interrupt
             systemVIA.setCA1(true);
             firedSyncOn = true;
         }
 
-        if (!firedSyncOff && cyclesSinceLastNewFrame >= syncPulseOffCycles) {
+        if (!firedSyncOff && cyclesSinceLastNewFrame >= getSyncPulseOffCycles()) {
             // Stop vsync interrupt
             systemVIA.setCA1(false);
             firedSyncOff = true;
         }
 
-        final long cursorToggleCycles = VERTICAL_SYNC_2MHZ_CYCLES * ((isCursorFastBlink()) ? FAST_CURSOR_VSYNCS : SLOW_CURSOR_VSYNCS);
         final long cyclesSinceLastCursorBlink = tickCount - lastCursorBlink;
-        if (cyclesSinceLastCursorBlink >= cursorToggleCycles) {
+        if (cyclesSinceLastCursorBlink >= getCursorToggleCycles()) {
             cursorOn = !cursorOn;
             lastCursorBlink = tickCount;
         }
@@ -100,9 +131,21 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
             firedSyncOn = false;
             firedSyncOff = false;
         }
+    }
 
-        tickCount += clockDefinition.computeElapsedCycles(CLOCK_SPEED, inputCycleCount, tickCount, elapsedNanos);
-        inputCycleCount++;
+    // Cycles until update() next has something to do
+    private long cyclesUntilNextUpdate() {
+        if (!firedNewFrame) {
+            return 1L;
+        }
+        long next = Math.min(lastEndOfFrame + VERTICAL_SYNC_2MHZ_CYCLES, lastCursorBlink + getCursorToggleCycles());
+        if (!firedSyncOn) {
+            next = Math.min(next, lastEndOfFrame + getSyncPulseOnCycles());
+        }
+        if (!firedSyncOff) {
+            next = Math.min(next, lastEndOfFrame + getSyncPulseOffCycles());
+        }
+        return Math.max(1L, next - tickCount);
     }
 
     public void addNewFrameListener(final Runnable l) {
@@ -121,6 +164,20 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
             frameCount = 0;
         }
         newFrameListeners.forEach(Runnable::run);
+        if (registerLog != null) {
+            registerLog.startFrame();
+        }
+    }
+
+    public void setRegisterLog(final VideoRegisterLog registerLog) {
+        this.registerLog = registerLog;
+    }
+
+    // Take on the register values (and cursor blink state) of another CRTC
+    public void copyRegistersFrom(final Crtc6845 other) {
+        v0 = other.v0;
+        cursorOn = other.cursorOn;
+        System.arraycopy(other.registers, 0, registers, 0, registers.length);
     }
 
     @Override
@@ -233,6 +290,9 @@ public class Crtc6845 extends AbstractMemoryMappedDevice implements InterruptSou
         } else {
             if (!isReadOnly(v0)) {
                 registers[v0] = value & 0xFF;
+                if (registerLog != null) {
+                    registerLog.write(VideoRegisterLog.SOURCE_CRTC, v0, value);
+                }
             }
         }
     }
@@ -2,9 +2,13 @@ package org.javabeeb.device;
 
 import org.javabeeb.util.SystemStatus;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public final class PagedRomSelect extends AbstractMemoryMappedDevice {
 
     private int slot = 15;
+    private final List<Runnable> selectionListeners = new ArrayList<>();
 
     public PagedRomSelect(SystemStatus systemStatus, String name, int startAddress, int size) {
         super(systemStatus, name, startAddress, size);
@@ -18,7 +22,15 @@ public final class PagedRomSelect extends AbstractMemoryMappedDevice {
 
     @Override
     public void writeRegister(int index, int value) {
-        this.slot = (value & 0xf);
+        final int newSlot = (value & 0xf);
+        if (newSlot != slot) {
+            this.slot = newSlot;
+            selectionListeners.forEach(Runnable::run);
+        }
+    }
+
+    public void addSelectionListener(final Runnable l) {
+        selectionListeners.add(l);
     }
 
     public int getSelectedSlot() {
@@ -1,10 +1,9 @@
 package org.javabeeb.device;
 
+import org.javabeeb.clock.DeviceClock;
 import org.javabeeb.keymap.ColRow;
 import org.javabeeb.keymap.KeyMap;
 import org.javabeeb.keymap.TargetKey;
-import org.javabeeb.sound.MultiSoundChip;
-import org.javabeeb.sound.NopSoundChip;
 import org.javabeeb.sound.SoundChip;
 import org.javabeeb.util.StateKey;
 import org.javabeeb.util.SystemStatus;
@@ -36,23 +35,15 @@ public class SystemVIA extends VIA {
     private Runnable capsLockChangedCallback;
     private Runnable shiftLockChangedCallback;
 
-    public static SoundChip createSoundChip() {
-        try {
-            return new MultiSoundChip();
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return new NopSoundChip();
-        }
-    }
-
     public SystemVIA(
             final SystemStatus systemStatus,
+            final DeviceClock deviceClock,
             final SoundChip soundChip,
             final String name,
             final int startAddress,
             final int size
     ) {
-        super(systemStatus, name, startAddress, size);
+        super(systemStatus, deviceClock, name, startAddress, size);
         this.soundChip = Objects.requireNonNull(soundChip);
     }
 
@@ -186,7 +177,7 @@ public class SystemVIA extends VIA {
     public void portAUpdated() {
         updateKeys();
         if ((IC32 & 1) == 0) {
-            soundChip.accept(portAPins);
+            soundChip.accept(portAPins, getDeviceCycle());
         }
 
     }
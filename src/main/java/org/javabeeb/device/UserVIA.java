@@ -1,5 +1,6 @@
 package org.javabeeb.device;
 
+import org.javabeeb.clock.DeviceClock;
 import org.javabeeb.util.StateKey;
 import org.javabeeb.util.SystemStatus;
 
@@ -10,10 +11,11 @@ import org.javabeeb.util.SystemStatus;
 public class UserVIA extends VIA {
     public UserVIA(
             final SystemStatus systemStatus,
+            final DeviceClock deviceClock,
             final String name,
             final int startAddress,
             final int size
     ) {
-        super(systemStatus, name, startAddress, size);
+        super(systemStatus, deviceClock, name, startAddress, size);
     }
 }
@@ -1,18 +1,20 @@
 package org.javabeeb.device;
 
-import org.javabeeb.clock.ClockListener;
-import org.javabeeb.clock.ClockDefinition;
+import org.javabeeb.clock.DeviceClock;
 import org.javabeeb.util.InterruptSource;
+import org.javabeeb.util.ScheduledTask;
 import org.javabeeb.util.StateKey;
 import org.javabeeb.util.SystemStatus;
 
+import java.util.Objects;
+
 //
 // Mostly based on  https://github.com/mattgodbolt/jsbeeb/via.js by Matt Godbolt
 //
-public class VIA extends AbstractMemoryMappedDevice implements ClockListener, InterruptSource {
-
-    // The clock rate that this is assumed to run at
-    private static final int CLOCK_SPEED = ClockDefinition.TWO_MHZ;
+// The timers aren't ticked - they're brought up to date with device time whenever a register is accessed, and a task
+// is scheduled for the cycle on which a timer next raises an interrupt.
+//
+public class VIA extends AbstractMemoryMappedDevice implements InterruptSource {
 
     private static final int ORB = 0x0;
     private static final int ORA = 0x1;
@@ -112,20 +114,32 @@ public class VIA extends AbstractMemoryMappedDevice implements ClockListener, In
     @StateKey(key = "t1_pb7")
     protected int t1_pb7;
 
-    private long inputCycleCount;
-    private long tickCount;
+    private static final int T2_PERIOD = 0x20000;
+
+    private final DeviceClock deviceClock;
+    private final ScheduledTask timerTask;
+    private long lastSyncCycle;
 
     public VIA(
             final SystemStatus systemStatus,
+            final DeviceClock deviceClock,
             final String name,
             final int startAddress,
             final int size
     ) {
         super(systemStatus, name, startAddress, size);
+        this.deviceClock = Objects.requireNonNull(deviceClock);
+        this.timerTask = deviceClock.newTask(this::timerEvent);
+        this.lastSyncCycle = deviceClock.getCycle();
+        deviceClock.addPauseListener(this::setPaused);
         //this.self = this;
         reset();
     }
 
+    public void setPaused(final boolean paused) {
+        // Do nothing by default
+    }
+
     private void reset() {
         ora = 0;
         orb = 0;
@@ -144,50 +158,116 @@ public class VIA extends AbstractMemoryMappedDevice implements ClockListener, In
         t1_pb7 = 1;
     }
 
-    @Override
-    public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
-        final int cycles = clockDefinition.computeElapsedCycles(CLOCK_SPEED, inputCycleCount, tickCount, elapsedNanos);
-        inputCycleCount++;
-        tickCount += cycles;
+    protected final long getDeviceCycle() {
+        return deviceClock.getCycle();
+    }
+
+    // Bring the timers up to date with device time - the same as ticking them once per elapsed cycle
+    public void synchronise() {
+        final long now = deviceClock.getCycle();
+        final long cycles = now - lastSyncCycle;
+        lastSyncCycle = now;
         if (cycles <= 0) {
             return;
         }
 
         justhit = 0;
-        int newT1c = t1c - cycles;
-        if (newT1c < -2 && t1c > -3) {
+        advanceTimer1(cycles);
+        if ((acr & 0x20) == 0) {
+            advanceTimer2(cycles);
+        }
+    }
+
+    // The timer state has been replaced (e.g. by restoring state) as of the current device time
+    public void stateRestored() {
+        lastSyncCycle = deviceClock.getCycle();
+        scheduleTimerEvent();
+    }
+
+    private void timerEvent() {
+        synchronise();
+        scheduleTimerEvent();
+    }
+
+    private void scheduleTimerEvent() {
+        long delay = Long.MAX_VALUE;
+        if (!t1hit) {
+            delay = (t1c < -2) ? t1l + 4 : t1c + 3;
+        }
+        if (!t2hit && (acr & 0x20) == 0) {
+            delay = Math.min(delay, t2c + 3);
+        }
+        if (delay == Long.MAX_VALUE) {
+            timerTask.cancel();
+        } else {
+            timerTask.schedule(delay);
+        }
+    }
+
+    // T1 counts down to -3 (hitting on the way from -2), and then reloads from the latch on the next cycle
+    private void advanceTimer1(long cycles) {
+        if (t1c < -2) {
+            t1c = t1l;
+            if (--cycles == 0) {
+                return;
+            }
+        }
+        final long untilHit = t1c + 3;
+        if (cycles < untilHit) {
+            t1c -= (int) cycles;
+            return;
+        }
+        cycles -= untilHit;
+        hitTimer1(cycles == 0);
+
+        // Any further hits are a whole period apart
+        final long period = t1l + 4;
+        final long hits = cycles / period;
+        final long remainder = cycles % period;
+        if (hits > 0) {
             if (!t1hit) {
                 ifr |= TIMER1INT;
                 updateIFR();
-                if (newT1c  == -3) {
+                if (remainder == 0) {
                     justhit |= 1;
                 }
-                t1_pb7 ^= 1;
+                t1_pb7 ^= (int) (hits & 1);
             }
-            if ((this.acr & 0x40) == 0) {
-                t1hit = true;
+        }
+        t1c = (remainder == 0) ? -3 : t1l - (int) (remainder - 1);
+    }
+
+    private void hitTimer1(final boolean lastCycle) {
+        if (!t1hit) {
+            ifr |= TIMER1INT;
+            updateIFR();
+            if (lastCycle) {
+                justhit |= 1;
             }
+            t1_pb7 ^= 1;
         }
-        while (newT1c < -3) {
-            newT1c += t1l + 4;
+        if ((this.acr & 0x40) == 0) {
+            t1hit = true;
         }
-        t1c = newT1c;
+    }
 
-        if ((acr & 0x20) == 0) {
-            int newT2c = t2c - cycles;
-            if (newT2c < -2) {
-                if (!t2hit) {
-                    ifr |= TIMER2INT;
-                    updateIFR();
-                    if (newT2c == -3) {
-                        justhit |= 2;
-                    }
-                    t2hit = true;
-                }
-                newT2c += 0x20000;
+    // T2 counts down to -3 (hitting on the way from -2), and then wraps around
+    private void advanceTimer2(long cycles) {
+        final long untilHit = Math.max(1, t2c + 3);
+        if (cycles < untilHit) {
+            t2c -= (int) cycles;
+            return;
+        }
+        cycles -= untilHit;
+        if (!t2hit) {
+            ifr |= TIMER2INT;
+            updateIFR();
+            if (cycles == 0) {
+                justhit |= 2;
             }
-            t2c = newT2c;
+            t2hit = true;
         }
+        t2c = T2_PERIOD - 3 - (int) (cycles % T2_PERIOD);
     }
 
     @Override
@@ -220,6 +300,7 @@ public class VIA extends AbstractMemoryMappedDevice implements ClockListener, In
     }
 
     public void writeRegister(int addr, final int val) {
+        synchronise();
         addr &=0xF;
         int mode;
         switch (addr) {
@@ -357,10 +438,12 @@ public class VIA extends AbstractMemoryMappedDevice implements ClockListener, In
                 updateIFR();
                 break;
         }
+        scheduleTimerEvent();
     }
 
     @Override
     public int readRegister(int index) {
+        synchronise();
         int temp;
         switch (index) {
             case ORA:
@@ -0,0 +1,77 @@
+package org.javabeeb.device;
+
+import org.javabeeb.clock.DeviceClock;
+
+import java.util.Objects;
+
+//
+// Records the writes made to the video ULA and CRTC registers, each with the 2Mhz cycle within the frame at which it
+// was made, so that a renderer drawing a whole frame at once can replay them as it reaches the point they were made.
+// Entries live in a fixed size ring, so only the most recent CAPACITY of them can be read back.
+//
+public final class VideoRegisterLog {
+
+    public static final int CAPACITY = 4096;
+
+    public static final int SOURCE_ULA = 0;
+    public static final int SOURCE_CRTC = 1;
+
+    private final DeviceClock deviceClock;
+
+    // cycle (32 bits) | source (8 bits) | register (8 bits) | value (8 bits)
+    private final long[] entries = new long[CAPACITY];
+
+    private long count;
+    private long frameStart;
+    private long frameStartCycle;
+
+    public VideoRegisterLog(final DeviceClock deviceClock) {
+        this.deviceClock = Objects.requireNonNull(deviceClock);
+    }
+
+    void write(final int source, final int register, final int value) {
+        final long cycle = Math.min(Integer.MAX_VALUE, deviceClock.getCycle() - frameStartCycle);
+        entries[(int) (count++ & (CAPACITY - 1))] = (cycle << 24) | (source << 16) | ((register & 0xFF) << 8) | (value & 0xFF);
+    }
+
+    // Called by the CRTC once its new frame listeners have seen the frame just finished
+    void startFrame() {
+        frameStart = count;
+        frameStartCycle = deviceClock.getCycle();
+    }
+
+    // The index of the first entry written during the current frame
+    public long getFrameStart() {
+        return frameStart;
+    }
+
+    // The index the next entry will be written at
+    public long getCount() {
+        return count;
+    }
+
+    // False if the entry has been overwritten (or not yet written)
+    public boolean isAvailable(final long index) {
+        return index < count && count - index <= CAPACITY;
+    }
+
+    public long getEntry(final long index) {
+        return entries[(int) (index & (CAPACITY - 1))];
+    }
+
+    public static int getCycle(final long entry) {
+        return (int) (entry >>> 24);
+    }
+
+    public static int getSource(final long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    public static int getRegister(final long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    public static int getValue(final long entry) {
+        return (int) entry & 0xFF;
+    }
+}
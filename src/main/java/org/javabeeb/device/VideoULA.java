@@ -6,6 +6,7 @@ import org.javabeeb.util.StateKey;
 import org.javabeeb.util.SystemStatus;
 
 import java.awt.*;
+import java.util.Arrays;
 import java.util.Objects;
 
 @StateKey(key = "videoULA")
@@ -63,6 +64,12 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
             0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15
     };
 
+    // Packed RGB of the pixels making up each screen byte in the current mode and palette - see getPixelTable
+    private int[] pixelTable;
+    private boolean pixelTableStale = true;
+
+    private VideoRegisterLog registerLog;
+
     public VideoULA(final SystemStatus systemStatus, final SystemPalette palette, final String name, final int startAddress) {
         super(systemStatus, name, startAddress, 8);
         this.systemPalette = Objects.requireNonNull(palette);
@@ -145,17 +152,66 @@ public class VideoULA extends AbstractMemoryMappedDevice implements InterruptSou
         return (videoControlRegister & 0x02) != 0;
     }
 
+    public void setRegisterLog(final VideoRegisterLog registerLog) {
+        this.registerLog = registerLog;
+    }
+
+    // Take on the register values of another ULA
+    public void copyRegistersFrom(final VideoULA other) {
+        if (videoControlRegister != other.videoControlRegister || !Arrays.equals(palette, other.palette)) {
+            videoControlRegister = other.videoControlRegister;
+            System.arraycopy(other.palette, 0, palette, 0, palette.length);
+            pixelTableStale = true;
+        }
+    }
+
     @Override
     public void writeRegister(int index, int value) {
         index = index & 1;
+        if (registerLog != null) {
+            registerLog.write(VideoRegisterLog.SOURCE_ULA, index, value);
+        }
         if (index == 0) {
-            this.videoControlRegister = (value & 0xFF);
+            if (videoControlRegister != (value & 0xFF)) {
+                this.videoControlRegister = (value & 0xFF);
+                pixelTableStale = true;
+            }
             //System.err.println("vcr = " + videoControlRegister + " bpp = " + getBitsPerPixel() + " cpl = " + getCharactersPerLine() + " fast = " + isFastClockRate());
         } else if (index == 1) {
             final int logicalIndex = (value >>> 4) & 0x0F;
             final int actualColour = (value & 0x0F);
-            palette[logicalIndex] = actualColour ^ 0x7;
+            if (palette[logicalIndex] != (actualColour ^ 0x7)) {
+                palette[logicalIndex] = actualColour ^ 0x7;
+                pixelTableStale = true;
+            }
+        }
+    }
+
+    public void stateRestored() {
+        pixelTableStale = true;
+    }
+
+    //
+    // Screen byte v as dots at the 16MHz (mode 0) pixel rate, in [v * 16, v * 16 + 8) for the fast clock rate or
+    // [v * 16, v * 16 + 16) for the slow one. A new table is created whenever the control register or palette has
+    // changed, so a renderer can hold on to the one it has until this returns a different one.
+    //
+    public int[] getPixelTable() {
+        if (pixelTableStale) {
+            final int bitsPerPixel = getBitsPerPixel();
+            final int pixelsPerCharacter = getPixelsPerCharacter();
+            final int dotsPerPixel = bitsPerPixel * (isFastClockRate() ? 1 : 2);
+            final int[] table = new int[256 * 16];
+            for (int v = 0; v < 256; v++) {
+                for (int b = 0; b < pixelsPerCharacter; b++) {
+                    final int rgb = getPhysicalColor(v, b, bitsPerPixel).getRGB() & 0xFFFFFF;
+                    Arrays.fill(table, (v << 4) + b * dotsPerPixel, (v << 4) + (b + 1) * dotsPerPixel, rgb);
+                }
+            }
+            pixelTable = table;
+            pixelTableStale = false;
         }
+        return pixelTable;
     }
 
     public Color getPhysicalColor(int v, int b, final int bitsPerPixel) {
@@ -4,12 +4,13 @@ import org.javabeeb.util.ScheduledTask;
 import org.javabeeb.util.Scheduler;
 import org.javabeeb.util.Util;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 public class BaseDisk implements Disk {
 
     private final FloppyDiskController fdc;
-    private int[] data;
+    private byte[] data;
     private final String name;
     private Runnable flusher;
 
@@ -31,7 +32,7 @@ public class BaseDisk implements Disk {
 
     private final Scheduler scheduler;
 
-    public BaseDisk(FloppyDiskController fdc, Scheduler scheduler, String name, int[] data, Runnable flusher) {
+    public BaseDisk(FloppyDiskController fdc, Scheduler scheduler, String name, byte[] data, Runnable flusher) {
         this.fdc = Objects.requireNonNull(fdc);
         this.scheduler = Objects.requireNonNull(scheduler);
         this.name = name;
@@ -46,7 +47,7 @@ public class BaseDisk implements Disk {
             size = details.getSize();;
         }
 
-        this.data = Util.resizeArray(data, size);
+        this.data = Arrays.copyOf(data, size);
 
         this.writeProt = (flusher == null);
         this.byteWithinSector = 0;
@@ -62,7 +63,7 @@ public class BaseDisk implements Disk {
         });
 
         readTask = scheduler.newTask(() -> {
-            this.fdc.discData(this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector]);
+            this.fdc.discData(this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector] & 0xFF);
             if (++this.byteWithinSector == 256) {
                 this.fdc.discFinishRead();
             } else {
@@ -75,7 +76,7 @@ public class BaseDisk implements Disk {
                 this.fdc.writeProtect();
                 return;
             }
-            this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector] = this.fdc.readDiscData(this.byteWithinSector == 255);
+            this.data[this.seekOffset + this.sectorOffset + this.byteWithinSector] = (byte) this.fdc.readDiscData(this.byteWithinSector == 255);
             if (++this.byteWithinSector == 256) {
                 this.fdc.discFinishRead();
                 this.flush();
@@ -9,6 +9,7 @@ import org.javabeeb.util.Util;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -50,7 +51,7 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
         }
     }
 
-    private static int[] createRomImage(final String name, final String copyright) {
+    private static byte[] createRomImage(final String name, final String copyright) {
         ByteBuffer buf = ByteBuffer.allocate(1000);
         buf.order(ByteOrder.LITTLE_ENDIAN);
 
@@ -74,7 +75,7 @@ public abstract class FilingSystem extends ReadOnlyMemory  {
         buf.put(Util.stringToBytes(copyright));
         buf.put((byte) 0);
 
-        return Util.toIntArray(buf.array(), 0x4000);
+        return Arrays.copyOf(buf.array(), 0x4000);
     }
 
     public final void initialiseFilesystem(final Cpu cpu, final Memory memory) {
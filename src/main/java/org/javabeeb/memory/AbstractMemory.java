@@ -4,8 +4,11 @@ import org.javabeeb.cpu.InstructionSet;
 import org.javabeeb.util.StateKey;
 import org.javabeeb.util.Util;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.IntConsumer;
 
@@ -15,19 +18,31 @@ public abstract class AbstractMemory implements Memory {
     private final int start;
 
     @StateKey(key = "memory")
-    private final int[] memory;
+    private final byte[] memory;
 
     @StateKey(key = "readOnly")
     private final boolean readOnly;
 
-    private Map<Integer, FetchIntercept> intercepts;
+    // Replaced rather than modified, so the CPU thread always sees a consistent map
+    private volatile Map<Integer, FetchIntercept> intercepts = Collections.emptyMap();
+    private final InterceptFilter interceptFilter = new InterceptFilter();
     private Map<Integer, IntConsumer> modifyWatches = null;
 
+    // One bit per (absolute) 256 byte page - see watchPage
+    private final long[] watchedPages = new long[4];
+    private PageWriteListener[] pageWriteListeners = new PageWriteListener[0];
+    private final List<Runnable> pageMappingListeners = new ArrayList<>();
+    private final List<Runnable> dirtyBitmapListeners = new ArrayList<>();
+
+    // Non-null while something is tracking writes - see RandomAccessMemory.newDirtyTracker. Set from any thread, so
+    // page tables only pick it up when the CPU asks them to remap (see PageTable.remapIfRequested)
+    private volatile DirtyBitmap dirtyBitmap;
+
     public AbstractMemory(final int start, final int size, final boolean readOnly) {
-        this(start, new int[size], readOnly);
+        this(start, new byte[size], readOnly);
     }
 
-    public AbstractMemory(final int start, final int[] memory, final boolean readOnly) {
+    public AbstractMemory(final int start, final byte[] memory, final boolean readOnly) {
         this.start = start;
         this.memory = Arrays.copyOf(memory, memory.length);
         this.readOnly = readOnly;
@@ -50,7 +65,7 @@ public abstract class AbstractMemory implements Memory {
 
     @Override
     public int readByte(int address) {
-        return memory[computeIndex(address)];
+        return memory[computeIndex(address)] & 0xFF;
     }
 
     @Override
@@ -64,38 +79,133 @@ public abstract class AbstractMemory implements Memory {
                 }
             }
             Util.checkUnsignedByte(value);
-            memory[computeIndex(address)] = value;
+            memory[computeIndex(address)] = (byte) value;
+            checkWatchedPage(address);
+            if (dirtyBitmap != null) {
+                dirtyBitmap.mark(address);
+            }
+        }
+    }
+
+    public final void readBytes(final int address, final byte[] dest, final int offset, final int length) {
+        if (length > 0) {
+            computeIndex(address + length - 1);
         }
+        System.arraycopy(memory, computeIndex(address), dest, offset, length);
     }
 
     private void writeByteIgnoringReadOnly(final int address, final int value) {
-        memory[computeIndex(address)] = value;
+        memory[computeIndex(address)] = (byte) value;
+        checkWatchedPage(address);
+    }
+
+    private void checkWatchedPage(final int address) {
+        final int page = address >>> 8;
+        if ((watchedPages[page >>> 6] & (1L << page)) != 0L) {
+            watchedPages[page >>> 6] &= ~(1L << page);
+            for (PageWriteListener l : pageWriteListeners) {
+                l.pageWritten(page);
+            }
+        }
+    }
+
+    final DirtyBitmap getDirtyBitmap() {
+        return dirtyBitmap;
+    }
+
+    final void setDirtyBitmap(final DirtyBitmap dirtyBitmap) {
+        this.dirtyBitmap = dirtyBitmap;
+        if (dirtyBitmap != null && dirtyBitmapListeners.isEmpty()) {
+            // Only ever written through writeByte, which marks it as soon as it is set
+            dirtyBitmap.setInstalled();
+        }
+        dirtyBitmapListeners.forEach(Runnable::run);
+    }
+
+    // Called from whichever thread opens or closes a dirty tracker
+    final void addDirtyBitmapListener(final Runnable l) {
+        dirtyBitmapListeners.add(l);
+    }
+
+    @Override
+    public int getCodeBank(int address) {
+        return hasAddress(address) ? 0 : -1;
+    }
+
+    @Override
+    public void watchPage(final int address, final PageWriteListener listener) {
+        if (!isPageWriteListener(listener)) {
+            pageWriteListeners = Arrays.copyOf(pageWriteListeners, pageWriteListeners.length + 1);
+            pageWriteListeners[pageWriteListeners.length - 1] = listener;
+        }
+        final int page = (address >>> 8) & 0xFF;
+        watchedPages[page >>> 6] |= (1L << page);
+    }
+
+    private boolean isPageWriteListener(final PageWriteListener listener) {
+        for (PageWriteListener l : pageWriteListeners) {
+            if (l == listener) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public void installIntercept(int address, FetchIntercept intercept, boolean addRTS) {
-        if (intercepts == null) {
-            intercepts = new HashMap<>();
+    public byte[] getPageArray(final int address, final boolean write) {
+        final int pageStart = address & 0xFF00;
+        if (!hasAddress(pageStart) || !hasAddress(pageStart + 0xFF)) {
+            return null;
+        }
+        if (write) {
+            final int page = pageStart >>> 8;
+            if (readOnly || modifyWatches != null || (watchedPages[page >>> 6] & (1L << page)) != 0L) {
+                return null;
+            }
         }
-        intercepts.put(address, intercept);
+        return memory;
+    }
+
+    @Override
+    public int getPageOffset(final int address) {
+        return -start;
+    }
+
+    @Override
+    public void addPageMappingListener(final Runnable l) {
+        pageMappingListeners.add(l);
+    }
+
+    @Override
+    public InterceptFilter getInterceptFilter() {
+        return interceptFilter;
+    }
+
+    @Override
+    public synchronized void installIntercept(int address, FetchIntercept intercept, boolean addRTS) {
+        final Map<Integer, FetchIntercept> newIntercepts = new HashMap<>(intercepts);
+        newIntercepts.put(address, intercept);
+        intercepts = newIntercepts;
         if (addRTS) {
             writeByteIgnoringReadOnly(address, InstructionSet.RTS_OPCODE);
         }
+        // Only once the intercept can be found
+        interceptFilter.set(address, true);
     }
 
     @Override
-    public void removeIntercept(int address) {
-        if (intercepts != null) {
-            intercepts.remove(address);
-            if (intercepts.isEmpty()) {
-                intercepts = null;
-            }
+    public synchronized void removeIntercept(int address) {
+        if (intercepts.containsKey(address)) {
+            interceptFilter.set(address, false);
+            final Map<Integer, FetchIntercept> newIntercepts = new HashMap<>(intercepts);
+            newIntercepts.remove(address);
+            intercepts = newIntercepts;
         }
     }
 
     @Override
     public boolean processIntercepts(int address) {
-        if (intercepts != null) {
+        if (interceptFilter.isSet(address)) {
             final FetchIntercept intercept = intercepts.get(address);
             if (intercept != null) {
                 return intercept.run();
@@ -116,5 +226,6 @@ public abstract class AbstractMemory implements Memory {
             modifyWatches = new HashMap<>();
         }
         modifyWatches.put(address, valueConsumer);
+        pageMappingListeners.forEach(Runnable::run);
     }
 }
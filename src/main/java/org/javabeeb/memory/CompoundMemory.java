@@ -11,6 +11,12 @@ public final class CompoundMemory implements Memory {
     private final List<Memory> regions = new ArrayList<>();
     private final Memory[] map;
 
+    // The region occupying the whole of each page, if any - only those can be mapped in the page table
+    private final Memory[] pageRegions = new Memory[256];
+    private final PageTable pageTable = new PageTable();
+
+    private final InterceptFilter interceptFilter = new InterceptFilter();
+
     public CompoundMemory(final List<Memory> regions) {
         this.regions.addAll(regions);
         int min = Integer.MAX_VALUE;
@@ -31,6 +37,68 @@ public final class CompoundMemory implements Memory {
         for (int address = min; address <= max; address++) {
             this.map[address] = computeRegion(address);
         }
+        for (int page = 0; page < 256; page++) {
+            pageRegions[page] = computePageRegion(page);
+            pageTable.map(page, pageRegions[page]);
+        }
+        for (Memory m : regions) {
+            m.addPageMappingListener(() -> remap(m));
+            if (m instanceof AbstractMemory) {
+                ((AbstractMemory) m).addDirtyBitmapListener(pageTable::requestRemap);
+            }
+            final InterceptFilter filter = m.getInterceptFilter();
+            if (filter != null) {
+                filter.addListener(this::updateInterceptFilter);
+                for (int address = Math.max(0, m.getMinAddress()); address <= m.getMaxAddress(); address++) {
+                    if (filter.isSet(address)) {
+                        updateInterceptFilter(address);
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateInterceptFilter(final int address) {
+        final Memory m = (address <= maxAddress) ? map[address] : null;
+        final InterceptFilter filter = (m == null) ? null : m.getInterceptFilter();
+        interceptFilter.set(address, filter != null && filter.isSet(address));
+    }
+
+    @Override
+    public InterceptFilter getInterceptFilter() {
+        return interceptFilter;
+    }
+
+    private Memory computePageRegion(final int page) {
+        final int start = page << 8;
+        if (start + 0xFF > maxAddress) {
+            return null;
+        }
+        final Memory m = map[start];
+        for (int address = start; address < start + 256; address++) {
+            if (map[address] != m) {
+                return null;
+            }
+        }
+        return m;
+    }
+
+    private void remap(final Memory m) {
+        for (int page = 0; page < 256; page++) {
+            if (pageRegions[page] == m) {
+                pageTable.map(page, m);
+            }
+        }
+    }
+
+    private void remapPage(final int address) {
+        final int page = (address >>> 8) & 0xFF;
+        pageTable.map(page, pageRegions[page]);
+    }
+
+    @Override
+    public PageTable getPageTable() {
+        return pageTable;
     }
 
     private Memory computeRegion(final int address) {
@@ -71,6 +139,10 @@ public final class CompoundMemory implements Memory {
 
     @Override
     public int readByte(int address) {
+        final int value = pageTable.readByte(address);
+        if (value >= 0) {
+            return value;
+        }
         final Memory m = map[address];
         if (m != null) {
             return m.readByte(address);
@@ -80,9 +152,14 @@ public final class CompoundMemory implements Memory {
 
     @Override
     public void writeByte(int address, int value) {
+        if (pageTable.writeByte(address, value)) {
+            return;
+        }
         final Memory m = map[address];
         if (m != null) {
             m.writeByte(address, value);
+            // The write may have fired a page watch, allowing the page to be written directly again
+            remapPage(address);
         } else {
             throw cannotAccessException(address);
         }
@@ -100,6 +177,22 @@ public final class CompoundMemory implements Memory {
 
     @Override
     public boolean processIntercepts(int address) {
-        return getRegion(address).processIntercepts(address);
+        return interceptFilter.isSet(address) && getRegion(address).processIntercepts(address);
+    }
+
+    @Override
+    public int getCodeBank(int address) {
+        if (address < 0 || address > maxAddress) {
+            return -1;
+        }
+        final Memory m = map[address];
+        return (m == null) ? -1 : m.getCodeBank(address);
+    }
+
+    @Override
+    public void watchPage(int address, PageWriteListener listener) {
+        getRegion(address).watchPage(address, listener);
+        // Writes to the page now have to go through the region so that it sees them
+        remapPage(address);
     }
 }
@@ -0,0 +1,60 @@
+package org.javabeeb.memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+//
+// One bit per 64 byte block of a memory, set by the thread writing to it with a plain OR and drained atomically by
+// whoever consumes it. A drain racing with a write can at worst leave bits the drain has already taken set again,
+// so changes are never missed once the bitmap is installed, only occasionally reported twice.
+//
+// Until then, writes may still be going wherever they went before - straight to the memory's array, or to a bitmap
+// that has since been replaced. A bitmap is installed once the page table mapping the memory has been remapped by the
+// CPU (or straight away, if no page table maps the memory).
+//
+final class DirtyBitmap {
+
+    static final int BLOCK_SHIFT = 6;
+
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int start;
+    private final long[] bits;
+    private volatile boolean installed;
+
+    DirtyBitmap(final int start, final int size) {
+        this.start = start;
+        this.bits = new long[(((size + (1 << BLOCK_SHIFT) - 1) >>> BLOCK_SHIFT) + 63) >>> 6];
+    }
+
+    void mark(final int address) {
+        final int block = (address - start) >>> BLOCK_SHIFT;
+        bits[block >>> 6] |= (1L << block);
+    }
+
+    // OR the bits set since the last drain into an array the same size as this bitmap, and clear them
+    void drainInto(final long[] into) {
+        for (int i = 0; i < bits.length; i++) {
+            if ((long) BITS.getOpaque(bits, i) != 0L) {
+                into[i] |= (long) BITS.getAndSet(bits, i, 0L);
+            }
+        }
+    }
+
+    // Set by the CPU thread, once it is marking this bitmap
+    void setInstalled() {
+        installed = true;
+    }
+
+    boolean isInstalled() {
+        return installed;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    int getWordCount() {
+        return bits.length;
+    }
+}
@@ -0,0 +1,49 @@
+package org.javabeeb.memory;
+
+//
+// The 64 byte blocks and 256 byte pages of a RandomAccessMemory written to between two snapshots of a DirtyTracker
+//
+public final class DirtyPages {
+
+    private final long epoch;
+    private final int start;
+    private final long[] bits;
+
+    DirtyPages(final long epoch, final int start, final long[] bits) {
+        this.epoch = epoch;
+        this.start = start;
+        this.bits = bits;
+    }
+
+    // Increases by one with each snapshot taken from the tracker
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public boolean isEmpty() {
+        for (long b : bits) {
+            if (b != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // True if the 64 byte block containing the address has been written to
+    public boolean isBlockDirty(final int address) {
+        final int block = (address - start) >>> DirtyBitmap.BLOCK_SHIFT;
+        final int word = block >>> 6;
+        return word >= 0 && word < bits.length && (bits[word] & (1L << block)) != 0L;
+    }
+
+    // True if the 256 byte page containing the address has been written to
+    public boolean isPageDirty(final int address) {
+        final int pageStart = address & 0xFF00;
+        for (int a = pageStart; a < pageStart + 256; a += (1 << DirtyBitmap.BLOCK_SHIFT)) {
+            if (isBlockDirty(a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package org.javabeeb.memory;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+//
+// A consumer's view of the writes to a RandomAccessMemory. Each snapshot reports what has changed since the previous
+// one and can be taken from any thread while the CPU keeps running.
+//
+// Snapshots report everything until the memory's dirty bitmap is installed (see DirtyBitmap) - the CPU only starts
+// marking it once it next gets between instructions, so the writes made before then can't be told apart. That
+// includes the first snapshot, and those taken after the last tracker was closed and a new one opened.
+//
+public final class DirtyTracker implements AutoCloseable {
+
+    private final RandomAccessMemory memory;
+    private final long[] pending;
+    private long epoch;
+    private boolean installedAtLastSnapshot;
+
+    DirtyTracker(final RandomAccessMemory memory, final int wordCount) {
+        this.memory = Objects.requireNonNull(memory);
+        this.pending = new long[wordCount];
+    }
+
+    public DirtyPages snapshot() {
+        synchronized (memory) {
+            final DirtyBitmap bitmap = memory.getDirtyBitmap();
+            final boolean installed = bitmap != null && bitmap.isInstalled();
+            memory.drainDirtyBitmap();
+            if (!installedAtLastSnapshot) {
+                // Some writes since the last snapshot may not have been marked
+                markAll();
+            }
+            installedAtLastSnapshot = installed;
+            final DirtyPages ret = new DirtyPages(++epoch, memory.getMinAddress(), pending.clone());
+            Arrays.fill(pending, 0L);
+            return ret;
+        }
+    }
+
+    void accumulate(final long[] drained) {
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] |= drained[i];
+        }
+    }
+
+    void markAll() {
+        Arrays.fill(pending, -1L);
+    }
+
+    @Override
+    public void close() {
+        memory.removeDirtyTracker(this);
+    }
+}
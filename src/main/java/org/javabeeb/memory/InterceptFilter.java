@@ -0,0 +1,36 @@
+package org.javabeeb.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+//
+// One bit per address in the 64K address space, set where a fetch may be intercepted. Lets the CPU skip
+// Memory.processIntercepts with a single bit test for the vast majority of fetches.
+//
+public final class InterceptFilter {
+
+    private final AtomicLongArray bits = new AtomicLongArray(1024);
+    private final List<IntConsumer> listeners = new ArrayList<>();
+
+    public boolean isSet(final int address) {
+        return (bits.getAcquire(address >>> 6) & (1L << address)) != 0L;
+    }
+
+    public void set(final int address, final boolean value) {
+        if (value) {
+            bits.getAndUpdate(address >>> 6, b -> b | (1L << address));
+        } else {
+            bits.getAndUpdate(address >>> 6, b -> b & ~(1L << address));
+        }
+        for (IntConsumer l : listeners) {
+            l.accept(address);
+        }
+    }
+
+    // Told the address whenever its bit is set or cleared
+    public void addListener(final IntConsumer l) {
+        listeners.add(l);
+    }
+}
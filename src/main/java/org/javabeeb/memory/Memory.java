@@ -20,6 +20,42 @@ public interface Memory {
     void removeIntercept(int address);
     boolean processIntercepts(int address);
 
+    // Where processIntercepts may return true or run an intercept - null if it never does
+    default InterceptFilter getInterceptFilter() {
+        return null;
+    }
+
+    // Identifies the code visible at an address, for caching decoded code - 0 for plain RAM/ROM, 1 + slot for paged
+    // ROMs or -1 if the address must not be cached (e.g. memory mapped devices)
+    default int getCodeBank(int address) {
+        return -1;
+    }
+
+    // Report the next write to the 256 byte page containing the address (the watch is removed when it fires)
+    default void watchPage(int address, PageWriteListener listener) {
+        // Do nothing
+    }
+
+    // The array backing the 256 byte page containing an address, indexed by address + getPageOffset(address), or null
+    // if accesses to the page must go through readByte / writeByte
+    default byte[] getPageArray(int address, boolean write) {
+        return null;
+    }
+
+    default int getPageOffset(int address) {
+        return 0;
+    }
+
+    // Called whenever what getPageArray returns changes
+    default void addPageMappingListener(Runnable l) {
+        // Do nothing
+    }
+
+    // Non-null if this memory maps its pages to arrays for direct access
+    default PageTable getPageTable() {
+        return null;
+    }
+
     default int readWord(int address) {
         Util.checkUnsignedWord(address);
         final int lo = readByte(address);
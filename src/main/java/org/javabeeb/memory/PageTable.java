@@ -0,0 +1,93 @@
+package org.javabeeb.memory;
+
+//
+// Maps each 256 byte page straight to the array backing it, so plain RAM and ROM can be read and written without
+// going through Memory.readByte / writeByte. Pages without an array (memory mapped devices, pages being watched for
+// writes etc.) must be accessed through the memory itself.
+//
+// The CPU reads and writes through the table without any locking, so it must only be changed on the CPU thread.
+// Other threads ask for it to be remapped instead.
+//
+public final class PageTable {
+
+    private final byte[][] readArrays = new byte[256][];
+    private final int[] readOffsets = new int[256];
+    private final byte[][] writeArrays = new byte[256][];
+    private final int[] writeOffsets = new int[256];
+
+    // Pages whose writes are being tracked - written directly too, but only after marking them dirty
+    private final byte[][] trackedWriteArrays = new byte[256][];
+    private final DirtyBitmap[] dirtyBitmaps = new DirtyBitmap[256];
+
+    private final Memory[] memories = new Memory[256];
+    private volatile boolean remapRequested;
+
+    // The byte at an address, or -1 if it must be read through the memory
+    public int readByte(final int address) {
+        final int page = address >>> 8;
+        final byte[] array = readArrays[page];
+        return (array == null) ? -1 : array[address + readOffsets[page]] & 0xFF;
+    }
+
+    // False if the byte must be written through the memory
+    public boolean writeByte(final int address, final int value) {
+        final int page = address >>> 8;
+        final byte[] array = writeArrays[page];
+        if (array == null) {
+            return writeTrackedByte(page, address, value);
+        }
+        array[address + writeOffsets[page]] = (byte) value;
+        return true;
+    }
+
+    // Only writes that can't be made directly get this far, so tracking costs nothing while nothing is tracked
+    private boolean writeTrackedByte(final int page, final int address, final int value) {
+        final byte[] array = trackedWriteArrays[page];
+        if (array == null) {
+            return false;
+        }
+        dirtyBitmaps[page].mark(address);
+        array[address + writeOffsets[page]] = (byte) value;
+        return true;
+    }
+
+    // Called by the CPU between instructions
+    public void remapIfRequested() {
+        if (remapRequested) {
+            remapRequested = false;
+            for (int page = 0; page < 256; page++) {
+                map(page, memories[page]);
+            }
+        }
+    }
+
+    // May be called from any thread
+    void requestRemap() {
+        remapRequested = true;
+    }
+
+    void map(final int page, final Memory memory) {
+        final int address = page << 8;
+        memories[page] = memory;
+        if (memory == null) {
+            readArrays[page] = null;
+            writeArrays[page] = null;
+            trackedWriteArrays[page] = null;
+            dirtyBitmaps[page] = null;
+        } else {
+            readArrays[page] = memory.getPageArray(address, false);
+            readOffsets[page] = memory.getPageOffset(address);
+            final byte[] writeArray = memory.getPageArray(address, true);
+            final DirtyBitmap memoryBitmap = (memory instanceof AbstractMemory) ? ((AbstractMemory) memory).getDirtyBitmap() : null;
+            if (memoryBitmap != null) {
+                // Writes to the page either mark it below or go through the memory, which marks it
+                memoryBitmap.setInstalled();
+            }
+            final DirtyBitmap dirtyBitmap = (writeArray != null) ? memoryBitmap : null;
+            writeOffsets[page] = memory.getPageOffset(address);
+            writeArrays[page] = (dirtyBitmap == null) ? writeArray : null;
+            trackedWriteArrays[page] = (dirtyBitmap == null) ? null : writeArray;
+            dirtyBitmaps[page] = dirtyBitmap;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package org.javabeeb.memory;
+
+public interface PageWriteListener {
+    void pageWritten(int page);
+}
@@ -2,6 +2,8 @@ package org.javabeeb.memory;
 
 import org.javabeeb.device.PagedRomSelect;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public final class PagedROM implements Memory {
@@ -10,6 +12,10 @@ public final class PagedROM implements Memory {
     private final int startAddess;
     private final int size;
     private final ReadOnlyMemory[] roms;
+    private final List<Runnable> pageMappingListeners = new ArrayList<>();
+
+    // Set where the ROM in any slot has an intercept - each ROM keeps its own filter for the exact test
+    private final InterceptFilter interceptFilter = new InterceptFilter();
 
     public PagedROM(
             int start,
@@ -24,6 +30,27 @@ public final class PagedROM implements Memory {
         roms.forEach((slot, rom) -> {
             this.roms[slot] = rom;
         });
+        selector.addSelectionListener(() -> pageMappingListeners.forEach(Runnable::run));
+        for (ReadOnlyMemory rom : this.roms) {
+            if (rom != null) {
+                rom.getInterceptFilter().addListener(this::updateInterceptFilter);
+            }
+        }
+    }
+
+    private void updateInterceptFilter(final int address) {
+        boolean set = false;
+        for (ReadOnlyMemory rom : roms) {
+            if (rom != null && rom.getInterceptFilter().isSet(address)) {
+                set = true;
+            }
+        }
+        interceptFilter.set(address, set);
+    }
+
+    @Override
+    public InterceptFilter getInterceptFilter() {
+        return interceptFilter;
     }
 
     @Override
@@ -66,4 +93,36 @@ public final class PagedROM implements Memory {
     public boolean processIntercepts(int address) {
         return roms[selector.getSelectedSlot()].processIntercepts(address);
     }
+
+    @Override
+    public byte[] getPageArray(final int address, final boolean write) {
+        final ReadOnlyMemory rom = roms[selector.getSelectedSlot()];
+        return (write || rom == null) ? null : rom.getPageArray(address, false);
+    }
+
+    @Override
+    public int getPageOffset(final int address) {
+        final ReadOnlyMemory rom = roms[selector.getSelectedSlot()];
+        return (rom == null) ? 0 : rom.getPageOffset(address);
+    }
+
+    @Override
+    public void addPageMappingListener(final Runnable l) {
+        pageMappingListeners.add(l);
+    }
+
+    @Override
+    public int getCodeBank(int address) {
+        final int slot = selector.getSelectedSlot();
+        return (roms[slot] == null) ? -1 : slot + 1;
+    }
+
+    @Override
+    public void watchPage(final int address, final PageWriteListener listener) {
+        // Intercepts may be installed into the selected ROM
+        final ReadOnlyMemory rom = roms[selector.getSelectedSlot()];
+        if (rom != null) {
+            rom.watchPage(address, listener);
+        }
+    }
 }
@@ -2,9 +2,52 @@ package org.javabeeb.memory;
 
 import org.javabeeb.util.StateKey;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @StateKey(key = "randomAccessMemory")
 public final class RandomAccessMemory extends AbstractMemory {
+
+    private final List<DirtyTracker> dirtyTrackers = new ArrayList<>();
+
     public RandomAccessMemory(int start, int size) {
         super(start, size, false);
     }
+
+    // Writes are only tracked while there is at least one tracker open
+    public synchronized DirtyTracker newDirtyTracker() {
+        DirtyBitmap bitmap = getDirtyBitmap();
+        if (bitmap == null) {
+            bitmap = new DirtyBitmap(getMinAddress(), getMaxAddress() - getMinAddress() + 1);
+            setDirtyBitmap(bitmap);
+        }
+        final DirtyTracker tracker = new DirtyTracker(this, bitmap.getWordCount());
+        dirtyTrackers.add(tracker);
+        return tracker;
+    }
+
+    synchronized void removeDirtyTracker(final DirtyTracker tracker) {
+        if (dirtyTrackers.remove(tracker) && dirtyTrackers.isEmpty()) {
+            setDirtyBitmap(null);
+        }
+    }
+
+    // Must be called holding the lock on this memory
+    void drainDirtyBitmap() {
+        final DirtyBitmap bitmap = getDirtyBitmap();
+        if (bitmap != null) {
+            final long[] drained = new long[bitmap.getWordCount()];
+            bitmap.drainInto(drained);
+            for (DirtyTracker t : dirtyTrackers) {
+                t.accumulate(drained);
+            }
+        }
+    }
+
+    // For changes made behind the memory's back, e.g. restoring state
+    public synchronized void markAllDirty() {
+        for (DirtyTracker t : dirtyTrackers) {
+            t.markAll();
+        }
+    }
 }
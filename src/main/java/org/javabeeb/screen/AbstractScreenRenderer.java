@@ -4,8 +4,10 @@ import org.javabeeb.device.Crtc6845;
 import org.javabeeb.device.SystemVIA;
 import org.javabeeb.device.VideoULA;
 import org.javabeeb.memory.Memory;
+import org.javabeeb.util.Util;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 public abstract class AbstractScreenRenderer implements ScreenRenderer {
 
@@ -26,10 +28,35 @@ public abstract class AbstractScreenRenderer implements ScreenRenderer {
         this.videoULA = videoULA;
     }
 
-    protected final void paintCursor(final Graphics2D g, final Rectangle charRect, final int pixelHeight) {
+    // XOR a CRTC's cursor lines into a character cell of a graphics mode image - the CRTC needn't be the live one
+    protected static void paintGraphicsCursor(final BufferedImage img, final Crtc6845 crtc, final Rectangle charRect, final int pixelHeight) {
         if (charRect != null) {
-            g.setColor(Color.WHITE);
-            g.fillRect(charRect.x, charRect.y + charRect.height - pixelHeight, charRect.width, pixelHeight);
+            final int cursorStart = crtc.getCursorStartLine();
+            final int cursorHeight = Math.min(
+                    (crtc.getCursorEndLine() - cursorStart) * pixelHeight,
+                    img.getHeight() - (charRect.y + cursorStart * pixelHeight)
+            );
+            if (cursorHeight > 0) {
+                Util.fillRectXOR(img.getRaster().getDataBuffer(), Color.WHITE.getRGB(),
+                        charRect.x,
+                        charRect.y + cursorStart * pixelHeight,
+                        charRect.width,
+                        cursorHeight,
+                        img.getWidth()
+                );
+            }
         }
     }
+
+    protected static int computeCharY(final int scanLine, final int scanLinesPerChar, final int pixelHeight) {
+        return ((scanLine >>> 3) * scanLinesPerChar * pixelHeight) + ((scanLine & 0x7) * pixelHeight);
+    }
+
+    protected static int wrapAddress(final int baseAddress, int address) {
+        if (address >= 0x8000) {
+            address -= (0x8000 - baseAddress);
+        }
+        // Screen memory is always in RAM, however odd the CRTC settings
+        return address & 0x7FFF;
+    }
 }
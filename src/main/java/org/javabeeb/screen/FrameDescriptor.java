@@ -0,0 +1,58 @@
+package org.javabeeb.screen;
+
+import org.javabeeb.device.Crtc6845;
+import org.javabeeb.device.SystemVIA;
+import org.javabeeb.device.VideoRegisterLog;
+import org.javabeeb.device.VideoULA;
+import org.javabeeb.memory.RandomAccessMemory;
+
+//
+// Everything FrameScreenRenderer needs to draw a finished frame, copied at vsync so that it can be drawn on another
+// thread while the emulation carries on
+//
+final class FrameDescriptor {
+
+    static final int SCREEN_MEMORY_SIZE = 0x8000;
+
+    final byte[] screenMemory = new byte[SCREEN_MEMORY_SIZE];
+
+    // The ULA and CRTC as they were at the end of the frame
+    final VideoULA videoULA;
+    final Crtc6845 crtc6845;
+
+    int screenStartAddress;
+
+    // The ImageHandoff generation the frame was captured in
+    long generation;
+
+    // The register writes made during the frame, which were logged from logStart up to logEnd
+    final long[] logEntries = new long[VideoRegisterLog.CAPACITY];
+    long logStart;
+    long logEnd;
+    boolean logComplete;
+
+    FrameDescriptor(final SystemPalette palette, final SystemVIA systemVIA, final Crtc6845 crtc6845, final VideoULA videoULA) {
+        this.videoULA = new VideoULA(videoULA.getSystemStatus(), palette, "Frame " + videoULA.getName(), videoULA.getMinAddress());
+        this.crtc6845 = new Crtc6845(crtc6845.getSystemStatus(), "Frame " + crtc6845.getName(), crtc6845.getMinAddress(), systemVIA);
+    }
+
+    void capture(final RandomAccessMemory ram, final VideoRegisterLog registerLog, final SystemVIA systemVIA, final Crtc6845 crtc6845, final VideoULA videoULA) {
+        ram.readBytes(0, screenMemory, 0, SCREEN_MEMORY_SIZE);
+        this.videoULA.copyRegistersFrom(videoULA);
+        this.crtc6845.copyRegistersFrom(crtc6845);
+        screenStartAddress = systemVIA.getScreenStartAddress();
+
+        logStart = registerLog.getFrameStart();
+        logEnd = registerLog.getCount();
+        logComplete = logStart == logEnd || registerLog.isAvailable(logStart);
+        if (logComplete) {
+            for (long i = logStart; i < logEnd; i++) {
+                logEntries[(int) (i - logStart)] = registerLog.getEntry(i);
+            }
+        }
+    }
+
+    long getLogEntry(final long index) {
+        return logEntries[(int) (index - logStart)];
+    }
+}
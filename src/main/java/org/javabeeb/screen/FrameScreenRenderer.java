@@ -0,0 +1,186 @@
+package org.javabeeb.screen;
+
+import org.javabeeb.clock.ClockDefinition;
+import org.javabeeb.device.Crtc6845;
+import org.javabeeb.device.SystemVIA;
+import org.javabeeb.device.VideoRegisterLog;
+import org.javabeeb.device.VideoULA;
+import org.javabeeb.memory.RandomAccessMemory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Objects;
+
+//
+// Paints a whole graphics mode frame at vsync, laid out as GraphicsModeScreenRenderer would. It draws the frame just
+// finished from shadow copies of the ULA and CRTC as they were when it started, replaying the register writes logged
+// during it as the beam would have reached them - so palette and mode changes part way down the screen still show.
+//
+// Drawing is split in two so that it can happen on a thread of its own - capture copies what the frame needs at vsync,
+// on the emulation thread, and render draws it from that copy alone.
+//
+public final class FrameScreenRenderer extends AbstractScreenRenderer {
+
+    private static final int PIXEL_HEIGHT = 2;
+
+    private final SystemPalette palette;
+    private final VideoRegisterLog registerLog;
+    private final RandomAccessMemory ram;
+
+    // The ULA and CRTC as they were at the start of the frame being drawn
+    private final VideoULA shadowULA;
+    private final Crtc6845 shadowCrtc;
+
+    private Point imageOrigin;
+
+    // For refreshWholeImage, which captures and renders on the calling thread
+    private FrameDescriptor descriptor;
+
+    // The log entries up to here have been applied to the shadows
+    private long replayedUpTo;
+
+    public FrameScreenRenderer(SystemPalette palette, VideoRegisterLog registerLog, RandomAccessMemory ram, SystemVIA systemVIA, Crtc6845 crtc6845, VideoULA videoULA) {
+        super(ram, systemVIA, crtc6845, videoULA);
+        this.palette = Objects.requireNonNull(palette);
+        this.registerLog = Objects.requireNonNull(registerLog);
+        this.ram = Objects.requireNonNull(ram);
+        this.shadowULA = new VideoULA(videoULA.getSystemStatus(), palette, "Shadow " + videoULA.getName(), videoULA.getMinAddress());
+        this.shadowCrtc = new Crtc6845(crtc6845.getSystemStatus(), "Shadow " + crtc6845.getName(), crtc6845.getMinAddress(), systemVIA);
+        shadowULA.copyRegistersFrom(videoULA);
+        shadowCrtc.copyRegistersFrom(crtc6845);
+    }
+
+    @Override
+    public boolean isClockBased() {
+        return false;
+    }
+
+    @Override
+    public void advance(final BufferedImage image, final ClockDefinition clockDefinition, final int inputCycles, final long elapsedNanos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void newFrame() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Point getImageOrigin() {
+        return imageOrigin;
+    }
+
+    private void replay(final long entry) {
+        final int register = VideoRegisterLog.getRegister(entry);
+        final int value = VideoRegisterLog.getValue(entry);
+        if (VideoRegisterLog.getSource(entry) == VideoRegisterLog.SOURCE_ULA) {
+            shadowULA.writeRegister(register, value);
+        } else {
+            shadowCrtc.writeRegister(0, register);
+            shadowCrtc.writeRegister(1, value);
+        }
+    }
+
+    private void syncShadows(final FrameDescriptor frame) {
+        shadowULA.copyRegistersFrom(frame.videoULA);
+        shadowCrtc.copyRegistersFrom(frame.crtc6845);
+    }
+
+    FrameDescriptor newFrameDescriptor() {
+        return new FrameDescriptor(palette, systemVIA, crtc6845, videoULA);
+    }
+
+    // Called on the emulation thread as the frame ends
+    void capture(final FrameDescriptor frame) {
+        frame.capture(ram, registerLog, systemVIA, crtc6845, videoULA);
+    }
+
+    @Override
+    public void refreshWholeImage(final BufferedImage img) {
+        if (descriptor == null) {
+            descriptor = newFrameDescriptor();
+        }
+        capture(descriptor);
+        render(img, descriptor);
+    }
+
+    // Frames must be rendered in the order they were captured, though not all of them need be
+    void render(final BufferedImage img, final FrameDescriptor frame) {
+        final int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        final int imageWidth = img.getWidth();
+        final int imageHeight = img.getHeight();
+        Arrays.fill(pixels, palette.getColour(0).getRGB() & 0xFFFFFF);
+
+        // Without all of the frame's writes (or the state it started in, when the previous frame was drawn some other
+        // way), the best that can be done is to draw it as things are now
+        long next = frame.logStart;
+        final long end = frame.logEnd;
+        if (next != replayedUpTo || !frame.logComplete) {
+            syncShadows(frame);
+            next = end;
+        }
+
+        // Like the beam renderer, only the ULA is sampled part way through the frame
+        final int startAddress = shadowCrtc.getScreenStartAddress() * 8;
+        final int baseAddress = frame.screenStartAddress;
+        final int cursorAddress = wrapAddress(baseAddress, shadowCrtc.getCursorAddress() * 8);
+        final boolean cursorOn = frame.crtc6845.isCursorOn() && shadowULA.isCursorEnabled() && shadowCrtc.isCursorEnabled();
+        final int horizontalTotalChars = shadowCrtc.getHorizontalTotalChars();
+        final int horizontalDisplayedChars = shadowCrtc.getHorizontalDisplayedChars();
+        final int scanLinesPerChar = shadowCrtc.getScanlinesPerCharacter();
+        final int scanLineCount = shadowCrtc.getVerticalDisplayedChars() * 8;
+
+        int[] table = shadowULA.getPixelTable();
+        int byteWidth = shadowULA.isFastClockRate() ? 8 : 16;
+        int nextCycle = (next < end) ? VideoRegisterLog.getCycle(frame.getLogEntry(next)) : Integer.MAX_VALUE;
+        int rasterWidth = 0;
+
+        Rectangle cursorRect = null;
+        int rasterHeight = 0;
+        for (int scanLine = 0; scanLine < scanLineCount; scanLine++) {
+            final int py = computeCharY(scanLine, scanLinesPerChar, PIXEL_HEIGHT);
+            if (py + PIXEL_HEIGHT > imageHeight) {
+                break;
+            }
+            final int scanLineAddress = startAddress + ((scanLine >>> 3) * horizontalDisplayedChars * 8) + (scanLine & 0x7);
+            int i = py * imageWidth;
+            int x = 0;
+            for (int charPos = 0; charPos < horizontalDisplayedChars; charPos++) {
+                // The 2Mhz cycle at which the CRTC fetches this character
+                final int cycle = (scanLine * horizontalTotalChars + charPos) * (shadowULA.isFastClockRate() ? 1 : 2);
+                if (cycle >= nextCycle) {
+                    while (next < end && VideoRegisterLog.getCycle(frame.getLogEntry(next)) <= cycle) {
+                        replay(frame.getLogEntry(next++));
+                    }
+                    nextCycle = (next < end) ? VideoRegisterLog.getCycle(frame.getLogEntry(next)) : Integer.MAX_VALUE;
+                    table = shadowULA.getPixelTable();
+                    byteWidth = shadowULA.isFastClockRate() ? 8 : 16;
+                }
+                if (x + byteWidth > imageWidth) {
+                    break;
+                }
+                final int address = wrapAddress(baseAddress, scanLineAddress + (charPos << 3));
+                final int v = frame.screenMemory[address] & 0xFF;
+                System.arraycopy(table, v << 4, pixels, i, byteWidth);
+                System.arraycopy(table, v << 4, pixels, i + imageWidth, byteWidth);
+                if (cursorOn && cursorRect == null && address == cursorAddress) {
+                    final int cy = computeCharY(scanLine & 0xf8, scanLinesPerChar, PIXEL_HEIGHT);
+                    cursorRect = new Rectangle(x, cy, byteWidth * shadowULA.getBitsPerPixel(), PIXEL_HEIGHT * scanLinesPerChar);
+                }
+                i += byteWidth;
+                x += byteWidth;
+            }
+            rasterWidth = Math.max(rasterWidth, x);
+            rasterHeight = py + PIXEL_HEIGHT;
+        }
+        paintGraphicsCursor(img, shadowCrtc, cursorRect, PIXEL_HEIGHT);
+
+        // Anything written after the last character, and anything the log could have missed (e.g. restoring state)
+        syncShadows(frame);
+        replayedUpTo = end;
+
+        imageOrigin = new Point(Math.max(0, (imageWidth - rasterWidth) / 2), Math.max(0, (imageHeight - rasterHeight) / 2));
+    }
+}
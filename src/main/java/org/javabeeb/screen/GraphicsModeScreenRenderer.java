@@ -5,11 +5,10 @@ import org.javabeeb.device.Crtc6845;
 import org.javabeeb.device.SystemVIA;
 import org.javabeeb.device.VideoULA;
 import org.javabeeb.memory.Memory;
-import org.javabeeb.util.Util;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.util.Objects;
 
 public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
@@ -23,6 +22,7 @@ public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
     private long myCycleCount = 0L;
 
     private long myCyclesSinceSync = 0L;
+    private int cyclesIntoLine = 0;
 
     private Rectangle cursorRect;
 
@@ -50,6 +50,9 @@ public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
     private int pixelWidth;
     private int pixelHeight;
 
+    // The ULA's current byte to pixels table - when that changes so may the mode
+    private int[] pixelTable;
+
     private int charPos = 0;
     private int scanLine;
     private int scanLineCount;
@@ -89,6 +92,7 @@ public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
         pixelHeight = 2;
 
         myCyclesSinceSync = 0L;
+        cyclesIntoLine = 0;
         charPos = 0;
         scanLine = 0;
         cursorRect = null;
@@ -97,52 +101,57 @@ public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
         rasterHeight = -1;
     }
 
+    private void updateMode() {
+        pixelsPerChar = videoULA.getPixelsPerCharacter();
+        pixelsPerLine = horizontalDisplayedChars * pixelsPerChar;
+        bitsPerPixel = videoULA.getBitsPerPixel();
+        fastClock = videoULA.isFastClockRate();
+        pixelWidth = bitsPerPixel * (fastClock ? 1 : 2);
+    }
+
     @Override
     public boolean isClockBased() {
         return true;
     }
 
     @Override
-    public void tick(final BufferedImage image, final ClockDefinition clockDefinition, final long elapsedNanos) {
-        final int cycles = clockDefinition.computeElapsedCycles(CLOCK_RATE, inputCycleCount, myCycleCount, elapsedNanos);
-        inputCycleCount++;
+    public void advance(final BufferedImage image, final ClockDefinition clockDefinition, final int inputCycles, final long elapsedNanos) {
+        final int cycles = clockDefinition.computeElapsedCycles(CLOCK_RATE, inputCycleCount, myCycleCount, elapsedNanos, inputCycles);
+        inputCycleCount += inputCycles;
         myCycleCount += cycles;
         if (cycles <= 0) {
             // Nothing to do yet
             return;
         }
 
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
         for (int i = 0; i < cycles; i++) {
             if (fastClock || ((myCyclesSinceSync & 1) == 0)) {
-                if ((myCyclesSinceSync % horizontalTotalChars) < horizontalDisplayedChars) {
-                    try {
-                        paintNextCharacter(image);
-                    } catch (Exception ex) {
-                        // TODO: Avoid having to catch this
-                        // Deliberately ignored
-                    }
+                if (cyclesIntoLine < horizontalDisplayedChars) {
+                    paintNextCharacter(image, pixels);
                 }
             }
             myCyclesSinceSync++;
+            if (++cyclesIntoLine == horizontalTotalChars) {
+                cyclesIntoLine = 0;
+            }
         }
     }
 
-    private void paintNextCharacter(final BufferedImage img) {
-
-        // TODO: Only fetch these after a material change in Videa ULA
-        pixelsPerChar = videoULA.getPixelsPerCharacter();
-        pixelsPerLine = horizontalDisplayedChars * pixelsPerChar;
-        bitsPerPixel = videoULA.getBitsPerPixel();
-        fastClock = videoULA.isFastClockRate();
-        pixelWidth = bitsPerPixel * (fastClock ? 1 : 2);
-
-        final DataBuffer dataBuffer = img.getWritableTile(0, 0).getDataBuffer();
-        final int imageWidth = img.getWidth();
+    private void paintNextCharacter(final BufferedImage img, final int[] pixels) {
 
         if (scanLine >= scanLineCount) {
             return;
         }
 
+        final int[] table = videoULA.getPixelTable();
+        if (table != pixelTable) {
+            pixelTable = table;
+            updateMode();
+        }
+
+        final int imageWidth = img.getWidth();
+
         if (scanLine == 0 && charPos == 0) {
             cursorRect = null;
             paintStart = System.nanoTime();
@@ -154,12 +163,14 @@ public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
         final int address = wrapAddress(baseAddress, scanLineAddress + (charPos << 3));
         final int v = memory.readByte(address);
         final int x = charPos * byteWidth;
-        int px = x;
-        int py = computeCharY(scanLine, scanLinesPerChar, pixelHeight);
-        for (int b = 0; b < pixelsPerChar; b++) {
-            final int rgb = videoULA.getPhysicalColor(v, b, bitsPerPixel).getRGB() & 0xFFFFFF;
-            Util.fillRect(dataBuffer, rgb, px, py, pixelWidth, pixelHeight, imageWidth);
-            px += pixelWidth;
+        final int px = x + byteWidth;
+        final int py = computeCharY(scanLine, scanLinesPerChar, pixelHeight);
+        if (px <= imageWidth && py + pixelHeight <= img.getHeight()) {
+            int i = py * imageWidth + x;
+            for (int line = 0; line < pixelHeight; line++) {
+                System.arraycopy(table, v << 4, pixels, i, byteWidth);
+                i += imageWidth;
+            }
         }
 
         final int maxY = py + pixelHeight;
@@ -184,36 +195,13 @@ public class GraphicsModeScreenRenderer extends AbstractScreenRenderer {
         if (scanLine >= scanLineCount) {
             final int ox = Math.max(0, (imageWidth - rasterWidth) / 2);
             final int oy = Math.max(0, (img.getHeight() - rasterHeight) / 2);
-            if (cursorRect != null) {
-                final int cursorStart = crtc6845.getCursorStartLine();;
-                final int cursorHeight = (crtc6845.getCursorEndLine() - cursorStart) * pixelHeight;
-                if (cursorHeight > 0) {
-                    Util.fillRectXOR(dataBuffer, Color.WHITE.getRGB(),
-                            cursorRect.x,
-                            cursorRect.y + cursorStart * pixelHeight,
-                            cursorRect.width,
-                            cursorHeight,
-                            imageWidth
-                    );
-                }
-                cursorRect = null;
-            }
+            paintGraphicsCursor(img, crtc6845, cursorRect, pixelHeight);
+            cursorRect = null;
             final Point origin = new Point(ox, oy);
             screen.imageReady(origin, System.nanoTime() - paintStart);
         }
     }
 
-    private static int computeCharY(final int scanLine, final int scanLinesPerChar, final int pixelHeight) {
-        return ((scanLine >>> 3) * scanLinesPerChar * pixelHeight) + ((scanLine & 0x7) * pixelHeight);
-    }
-
-    private static int wrapAddress(final int baseAddress, int address) {
-        if (address >= 0x8000) {
-            address -= (0x8000 - baseAddress);
-        }
-        return address;
-    }
-
     @Override
     public void refreshWholeImage(final BufferedImage img) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,99 @@
+package org.javabeeb.screen;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+//
+// Hands painted images from the threads painting them (the emulation thread and the render thread) to the thread
+// showing them. An image is only painted again once the consumer has replaced it with a newer one, so it is never
+// painted over while being shown. If the painters get ahead, images the consumer hasn't taken yet are replaced.
+//
+// Each switch of renderer starts a new generation, and images painted for an earlier one are dropped - otherwise a
+// frame the render thread was still drawing could replace (and outlast) the first image from the new renderer.
+//
+// The lock is only ever held long enough to swap a few references - nobody paints while holding it.
+//
+public final class ImageHandoff {
+
+    // One being painted by each of the two painting threads, one waiting to be taken and one being shown
+    private static final int IMAGE_COUNT = 4;
+
+    private final Deque<BufferedImage> free = new ArrayDeque<>();
+
+    private long generation;
+
+    private BufferedImage pending;
+    private Point pendingOrigin;
+
+    // Consumer only, once taken
+    private BufferedImage shown;
+    private Point shownOrigin;
+
+    ImageHandoff(final int width, final int height) {
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            free.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+        this.shown = free.remove();
+    }
+
+    // An image for a painting thread to paint on - each thread has at most one at a time
+    synchronized BufferedImage acquire() {
+        final BufferedImage ret = free.poll();
+        if (ret == null) {
+            throw new IllegalStateException("no free image");
+        }
+        return ret;
+    }
+
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    // Called on the emulation thread when it switches renderer
+    synchronized void newGeneration() {
+        generation++;
+    }
+
+    // Hands over an image painted for the current generation, and returns the one to paint next
+    synchronized BufferedImage publish(final BufferedImage image, final Point origin) {
+        return publish(image, origin, generation);
+    }
+
+    // As above, for an image painted for the given generation - if that has passed, the image is just handed back
+    synchronized BufferedImage publish(final BufferedImage image, final Point origin, final long imageGeneration) {
+        if (imageGeneration != generation) {
+            return image;
+        }
+        if (pending != null) {
+            free.add(pending);
+        }
+        pending = image;
+        pendingOrigin = origin;
+        return acquire();
+    }
+
+    // Called on the consumer's thread before showing the image - true if there is a newer one to show
+    public synchronized boolean takeLatest() {
+        if (pending == null) {
+            return false;
+        }
+        free.add(shown);
+        shown = pending;
+        shownOrigin = pendingOrigin;
+        pending = null;
+        pendingOrigin = null;
+        return true;
+    }
+
+    // The image last taken - safe to show until takeLatest is next called
+    public synchronized BufferedImage getImage() {
+        return shown;
+    }
+
+    // Where the image last taken should be shown from, or null for its top left corner
+    public synchronized Point getImageOrigin() {
+        return shownOrigin;
+    }
+}
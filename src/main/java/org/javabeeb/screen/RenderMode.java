@@ -0,0 +1,26 @@
+package org.javabeeb.screen;
+
+import org.javabeeb.clock.ClockDefinition;
+
+public enum RenderMode {
+
+    // Whole frames when the clock is unthrottled (e.g. ClockDefinition.MAX), racing the beam otherwise
+    AUTOMATIC,
+
+    // Paint each character as the CRTC reaches it, so mid-frame changes show
+    BEAM,
+
+    // Paint the whole graphics mode frame in one go at vsync
+    FRAME;
+
+    public boolean isFrameBased(final ClockDefinition clockDefinition) {
+        switch (this) {
+            case BEAM:
+                return false;
+            case FRAME:
+                return true;
+            default:
+                return !clockDefinition.isThrottled();
+        }
+    }
+}
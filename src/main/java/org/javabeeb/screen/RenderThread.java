@@ -0,0 +1,60 @@
+package org.javabeeb.screen;
+
+import org.javabeeb.util.TripleBuffer;
+
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+//
+// Draws the frames captured by a FrameScreenRenderer on a thread of its own. Handing them over never blocks the
+// emulation thread - if it gets ahead, frames the render thread hasn't started on are replaced by newer ones. The
+// images drawn go to the image consumer through an ImageHandoff.
+//
+final class RenderThread {
+
+    private final FrameScreenRenderer renderer;
+    private final ImageHandoff imageHandoff;
+    private final Runnable imageReadyListener;
+    private final TripleBuffer<FrameDescriptor> frames;
+
+    private volatile Thread thread;
+
+    RenderThread(final FrameScreenRenderer renderer, final ImageHandoff imageHandoff, final Runnable imageReadyListener) {
+        this.renderer = Objects.requireNonNull(renderer);
+        this.imageHandoff = Objects.requireNonNull(imageHandoff);
+        this.imageReadyListener = Objects.requireNonNull(imageReadyListener);
+        this.frames = new TripleBuffer<>(renderer::newFrameDescriptor);
+    }
+
+    // Called on the emulation thread as a frame ends
+    void submitFrame() {
+        final FrameDescriptor frame = frames.getBack();
+        renderer.capture(frame);
+        frame.generation = imageHandoff.getGeneration();
+        frames.publish();
+        Thread t = thread;
+        if (t == null) {
+            t = new Thread(this::run, "Render");
+            t.setDaemon(true);
+            thread = t;
+            t.start();
+        } else {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private void run() {
+        BufferedImage image = imageHandoff.acquire();
+        while (true) {
+            final FrameDescriptor frame = frames.takeFront();
+            if (frame == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            renderer.render(image, frame);
+            image = imageHandoff.publish(image, renderer.getImageOrigin(), frame.generation);
+            imageReadyListener.run();
+        }
+    }
+}
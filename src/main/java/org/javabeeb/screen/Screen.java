@@ -5,14 +5,16 @@ import org.javabeeb.clock.ClockListener;
 import org.javabeeb.clock.ClockDefinition;
 import org.javabeeb.device.Crtc6845;
 import org.javabeeb.device.SystemVIA;
+import org.javabeeb.device.VideoRegisterLog;
 import org.javabeeb.device.VideoULA;
 import org.javabeeb.memory.Memory;
+import org.javabeeb.memory.RandomAccessMemory;
 import org.javabeeb.teletext.TeletextScreenRenderer;
 import org.javabeeb.util.SystemStatus;
-import org.javabeeb.util.Util;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.List;
 import java.util.*;
 import java.util.function.BiConsumer;
@@ -20,8 +22,6 @@ import java.util.function.IntConsumer;
 
 public final class Screen implements ClockListener {
 
-    private static final boolean DOUBLE_BUFFERED = true;
-
     private static final int IMAGE_WIDTH = 640;
     private static final int IMAGE_HEIGHT = 512;
 
@@ -35,22 +35,34 @@ public final class Screen implements ClockListener {
 
     private ScreenRenderer renderer;
     private final ScreenRenderer graphicsRenderer;
+    private final FrameScreenRenderer frameRenderer;
     private final TeletextScreenRenderer teletextRenderer;
 
-    private final BufferedImage image0 = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
-    private final BufferedImage image1 = DOUBLE_BUFFERED ? new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB) : null;
+    // Whole graphics mode frames are drawn on here rather than the emulation thread
+    private final RenderThread renderThread;
+
+    // Every renderer's images go to the image consumer through here
+    private final ImageHandoff imageHandoff = new ImageHandoff(IMAGE_WIDTH, IMAGE_HEIGHT);
 
-    private ScreenImageConsumer imageConsumer;
+    // The image the emulation thread is painting on
+    private BufferedImage imageToPaint = imageHandoff.acquire();
+
+    private volatile ScreenImageConsumer imageConsumer;
 
     private volatile boolean paused;
 
+    private RenderMode renderMode = RenderMode.AUTOMATIC;
+    private ClockDefinition clockDefinition = ClockDefinition.CR200;
+
     public Screen(
             final SystemStatus systemStatus,
             final BBCMicro bbc,
             final Memory memory,
+            final RandomAccessMemory ram,
             final VideoULA videoULA,
             final Crtc6845 crtc6845,
-            final SystemVIA systemVIA
+            final SystemVIA systemVIA,
+            final VideoRegisterLog registerLog
     ) {
         this.systemStatus = Objects.requireNonNull(systemStatus);
         this.bbc = Objects.requireNonNull(bbc);
@@ -58,27 +70,37 @@ public final class Screen implements ClockListener {
         this.videoULA = Objects.requireNonNull(videoULA);
         this.systemVIA = Objects.requireNonNull(systemVIA);
         this.graphicsRenderer = new GraphicsModeScreenRenderer(this, memory, systemVIA, crtc6845, videoULA);
+        this.frameRenderer = new FrameScreenRenderer(palette, registerLog, ram, systemVIA, crtc6845, videoULA);
         this.teletextRenderer = new TeletextScreenRenderer(memory, systemVIA, crtc6845, videoULA);
+        this.renderThread = new RenderThread(frameRenderer, imageHandoff, this::notifyImageConsumer);
     }
 
-    private int imageIndex;
-    private Point imageOrigin;
-
     private BufferedImage getImageToPaint() {
-        return !DOUBLE_BUFFERED || (imageIndex & 1) == 0 ? image0 : image1;
+        return imageToPaint;
     }
 
-    private BufferedImage getImageToShow() {
-        return !DOUBLE_BUFFERED || (imageIndex & 1) != 0 ? image0 : image1;
+    @Override
+    public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
+        advance(clockDefinition, 1, elapsedNanos);
     }
 
     @Override
-    public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
+    public void advance(final ClockDefinition clockDefinition, final int cycles, final long elapsedNanos) {
+        this.clockDefinition = clockDefinition;
         if (renderer != null && renderer.isClockBased()) {
-            renderer.tick(getImageToPaint(), clockDefinition, elapsedNanos);
+            renderer.advance(getImageToPaint(), clockDefinition, cycles, elapsedNanos);
         }
     }
 
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    // Takes effect from the next frame
+    public void setRenderMode(final RenderMode renderMode) {
+        this.renderMode = Objects.requireNonNull(renderMode);
+    }
+
     public ScreenImageConsumer getScreenImageConsumert() {
         return imageConsumer;
     }
@@ -96,33 +118,43 @@ public final class Screen implements ClockListener {
     }
 
     public void imageReady(final Point origin, final long timeNanos) {
-        swapImages();
-        this.imageOrigin = origin;
-        imageConsumer.setImage(getImageToShow(), imageOrigin);
+        imageToPaint = imageHandoff.publish(imageToPaint, origin);
+        notifyImageConsumer();
     }
 
-    private void swapImages() {
-        imageIndex++;
+    // Called by whichever thread painted the image - the emulation thread or the render thread
+    private void notifyImageConsumer() {
+        final ScreenImageConsumer consumer = imageConsumer;
+        if (consumer != null) {
+            consumer.imageReady(imageHandoff);
+        }
     }
 
     public void newFrame() {
+        final ScreenRenderer previousRenderer = renderer;
         if (videoULA.isTeletext()) {
             renderer = teletextRenderer;
+        } else if (renderMode.isFrameBased(clockDefinition)) {
+            renderer = frameRenderer;
         } else {
             renderer = graphicsRenderer;
         }
 
+        if (renderer != previousRenderer) {
+            // Drop anything still being drawn for the previous renderer
+            imageHandoff.newGeneration();
+        }
+
         if (renderer != null) {
             if (renderer.isClockBased()) {
                 final BufferedImage image = getImageToPaint();
-                Util.fillRect(image.getWritableTile(0, 0).getDataBuffer(), palette.getColour(0).getRGB(), 0, 0, image.getWidth(), image.getHeight(), image.getWidth());
+                Arrays.fill(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), palette.getColour(0).getRGB() & 0xFFFFFF);
                 renderer.newFrame();
-            } else {
+            } else if (renderer == frameRenderer) {
+                renderThread.submitFrame();
+            } else if (renderer != previousRenderer || renderer.isRefreshNeeded()) {
                 renderer.refreshWholeImage(getImageToPaint());
-                swapImages();
-                if (imageConsumer != null) {
-                    imageConsumer.setImage(getImageToShow(), null);
-                }
+                imageReady(renderer.getImageOrigin(), 0L);
             }
         }
     }
@@ -130,9 +162,10 @@ public final class Screen implements ClockListener {
     @Override
     public void setPaused(boolean paused) {
         this.paused = paused;
-        if (imageConsumer != null) {
-            imageConsumer.setImage(getImageToShow(), imageOrigin);
-            imageConsumer.setPaused(paused);
+        final ScreenImageConsumer consumer = imageConsumer;
+        if (consumer != null) {
+            consumer.imageReady(imageHandoff);
+            consumer.setPaused(paused);
         }
     }
 }
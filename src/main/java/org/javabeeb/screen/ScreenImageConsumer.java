@@ -1,9 +1,7 @@
 package org.javabeeb.screen;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
-
 public interface ScreenImageConsumer {
-    void setImage(BufferedImage image, Point imageOrigin);
+    // Called on the thread that painted the image - the consumer takes it from the handoff on its own thread
+    void imageReady(ImageHandoff imageHandoff);
     void setPaused(final boolean paused);
 }
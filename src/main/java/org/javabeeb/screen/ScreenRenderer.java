@@ -2,13 +2,24 @@ package org.javabeeb.screen;
 
 import org.javabeeb.clock.ClockDefinition;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
 
 public interface ScreenRenderer {
 
     boolean isClockBased();
-    void tick(BufferedImage image, ClockDefinition clockDefinition, long elapsedNanos);
+    void advance(BufferedImage image, ClockDefinition clockDefinition, int inputCycles, long elapsedNanos);
     void newFrame();
 
     void refreshWholeImage(BufferedImage image);
+
+    // False if refreshWholeImage would paint the same image as it did last time
+    default boolean isRefreshNeeded() {
+        return true;
+    }
+
+    // Where the image painted by refreshWholeImage should be shown from, or null for its top left corner
+    default Point getImageOrigin() {
+        return null;
+    }
 }
@@ -0,0 +1,35 @@
+package org.javabeeb.sound;
+
+import java.io.IOException;
+
+//
+// Where the sound goes. Samples are 16 bit signed big-endian mono at SAMPLE_RATE.
+//
+public interface AudioSink {
+
+    int SAMPLE_RATE = 44_100;
+    int BYTES_PER_SAMPLE = 2;
+
+    // The sound card if there is one, otherwise nowhere
+    static AudioSink createDefault() {
+        try {
+            return new JavaxAudioSink();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return NullAudioSink.INSTANCE;
+        }
+    }
+
+    // True if write blocks so as to play the sound at its proper rate. Otherwise the sound is made as the emulation
+    // runs, however fast that is.
+    boolean isRealTime();
+
+    // True if everything written is thrown away, so there's no need to make any sound at all
+    default boolean isDiscarding() {
+        return false;
+    }
+
+    void write(byte[] data, int offset, int length);
+
+    void close() throws IOException;
+}
@@ -0,0 +1,37 @@
+package org.javabeeb.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+public final class JavaxAudioSink implements AudioSink {
+
+    // A few hundredths of a second - enough to ride out a late frame without making the sound lag
+    private static final int BUFFER_SIZE = (SAMPLE_RATE / 100) * BYTES_PER_SAMPLE * 4;
+
+    private final SourceDataLine line;
+
+    public JavaxAudioSink() throws LineUnavailableException {
+        final AudioFormat af = new AudioFormat(SAMPLE_RATE, 8 * BYTES_PER_SAMPLE, 1, true, true);
+        this.line = AudioSystem.getSourceDataLine(af);
+        line.open(af, BUFFER_SIZE);
+        line.start();
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return true;
+    }
+
+    @Override
+    public void write(final byte[] data, final int offset, final int length) {
+        line.write(data, offset, length);
+    }
+
+    @Override
+    public void close() {
+        line.stop();
+        line.close();
+    }
+}
@@ -1,77 +1,236 @@
 package org.javabeeb.sound;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
+import org.javabeeb.clock.AudioPacer;
+import org.javabeeb.clock.ClockDefinition;
+import org.javabeeb.util.SpscLongRing;
+
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
 
-public class MultiSoundChannel extends Thread {
+//
+// Mixes the three tone channels and the noise channel into a single 16 bit output, all in integer arithmetic.
+//
+// For a real time sink, changes to the channels are posted from the emulation thread tagged with the device cycle
+// they were made at, and made by this thread at the sample that cycle corresponds to. Device time is tied to sample
+// time by an offset that is reset whenever a change would fall too far behind or ahead of the output - e.g. after a
+// pause, or while the emulation runs faster than real time.
+//
+// Otherwise this thread isn't started and the sound is made on the emulation thread, up to each change as it is
+// posted - so it follows emulated time exactly, however fast the emulation runs.
+//
+public class MultiSoundChannel extends Thread implements AudioPacer {
 
     private static final double MASTER_VOLUME = 0.05;
 
-    private static final int SAMPLE_RATE = 44_100;
+    // The amplitude of a channel at volume level 15
+    private static final int FULL_AMPLITUDE = (int) Math.round(Short.MAX_VALUE * MASTER_VOLUME);
+    private static final int MAX_VOLUME_LEVEL = 15;
+
+    private static final int SAMPLE_RATE = AudioSink.SAMPLE_RATE;
+    private static final int BYTES_PER_SAMPLE = AudioSink.BYTES_PER_SAMPLE;
     private static final int FRAME_SIZE = SAMPLE_RATE / 100;
-    private static final int BUFFER_SIZE = FRAME_SIZE * 4;
 
-    private final int channelCount;
-    private final WaveGenerator[] waveGenerators;
-    private final SourceDataLine[] lines;
+    // How far behind the emulation the output runs, so that the changes made during a clock slice arrive in time
+    private static final int LATENCY_SAMPLES = SAMPLE_RATE / 25;
+    private static final int MAX_LEAD_SAMPLES = LATENCY_SAMPLES * 4;
+
+    private static final int CHANGE_QUEUE_SIZE = 8192;
+
+    //
+    // The kinds of change - each is queued as cycle << 16 | kind << 14 | channel << 12 | value
+    //
+    static final int VOLUME = 0;
+    static final int TONE = 1;
+    static final int NOISE = 2;
+
+    private final SquareWaveGenerator[] toneGenerators;
+    private final NoiseGenerator noiseGenerator;
+    private final AudioSink sink;
+
+    private final byte[] data = new byte[FRAME_SIZE * BYTES_PER_SAMPLE];
 
-    private final byte[][] data;
+    // Tone channels first, then noise
+    private final int[] amplitude;
 
-    private double[] volume;
+    private final SpscLongRing changes = new SpscLongRing(CHANGE_QUEUE_SIZE);
+
+    // Whichever thread makes the sound
+    private int frameSamples;
+    private long sampleCount;
+    private long sampleOffset;
+    private boolean synced;
+
+    // Written by this thread only, once the sink has taken each frame
+    private volatile long framesWritten;
+    private volatile Thread frameWaiter;
 
     private volatile boolean stopRequested = false;
     private volatile boolean paused;
 
-    public MultiSoundChannel(final WaveGenerator[] waveGenerators) throws LineUnavailableException {
-        this.channelCount = waveGenerators.length;
-        this.waveGenerators = Arrays.copyOf(waveGenerators, waveGenerators.length);
-        this.data = new byte[channelCount][FRAME_SIZE];
-        final AudioFormat af = new AudioFormat(SAMPLE_RATE, 8, 1, true, true);
-        this.lines = new SourceDataLine[channelCount];
-        for (int i = 0; i < channelCount; i++) {
-            lines[i] = AudioSystem.getSourceDataLine(af);
-            lines[i].open(af, BUFFER_SIZE);
-            lines[i].start();
+    public MultiSoundChannel(final SquareWaveGenerator[] toneGenerators, final NoiseGenerator noiseGenerator, final AudioSink sink) {
+        this.toneGenerators = Arrays.copyOf(toneGenerators, toneGenerators.length);
+        this.noiseGenerator = Objects.requireNonNull(noiseGenerator);
+        this.sink = Objects.requireNonNull(sink);
+        this.amplitude = new int[toneGenerators.length + 1];
+    }
+
+    // Called on the emulation thread. For a real time sink a change that doesn't fit in the queue is dropped, which
+    // only happens if this thread has stalled.
+    void post(final long cycle, final int kind, final int channel, final int value) {
+        if (sink.isRealTime()) {
+            changes.offer((cycle << 16) | ((long) kind << 14) | ((long) channel << 12) | (value & 0xFFF));
+        } else {
+            if (!synced) {
+                sampleOffset = sampleCount - toSamples(cycle);
+                synced = true;
+            }
+            final long due = toSamples(cycle) + sampleOffset;
+            while (sampleCount < due) {
+                nextSample();
+            }
+            apply(kind, channel, value);
+        }
+    }
+
+    // Called on the emulation thread. A sink that isn't real time is given the sound up to the cycle first.
+    void close(final long cycle) throws IOException {
+        if (!sink.isRealTime()) {
+            if (synced) {
+                final long due = toSamples(cycle) + sampleOffset;
+                while (sampleCount < due) {
+                    nextSample();
+                }
+            }
+            sink.write(data, 0, frameSamples * BYTES_PER_SAMPLE);
+            frameSamples = 0;
+        } else {
+            stopRequested = true;
+            try {
+                join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sink.close();
+    }
+
+    // Make the changes that are due by the current sample
+    private void applyChanges() {
+        while (!changes.isEmpty()) {
+            final long change = changes.peek();
+            long due = toSamples(change >>> 16) + sampleOffset;
+            if (!synced || due < sampleCount - LATENCY_SAMPLES || due > sampleCount + MAX_LEAD_SAMPLES) {
+                sampleOffset += sampleCount + LATENCY_SAMPLES - due;
+                due = sampleCount + LATENCY_SAMPLES;
+                synced = true;
+            }
+            if (due > sampleCount) {
+                return;
+            }
+            apply((int) (change >>> 14) & 0x3, (int) (change >>> 12) & 0x3, (int) change & 0xFFF);
+            changes.pop();
         }
-        this.volume = new double[channelCount];
     }
 
-    public void setVolume(final int channelIndex, final double volume) {
-        this.volume[channelIndex] = MASTER_VOLUME * Math.max(-1.0, Math.min(1.0, volume));
+    // Split so as not to overflow however long the machine has been running
+    private static long toSamples(final long cycle) {
+        final long seconds = cycle / ClockDefinition.TWO_MHZ;
+        return seconds * SAMPLE_RATE + (cycle - seconds * ClockDefinition.TWO_MHZ) * SAMPLE_RATE / ClockDefinition.TWO_MHZ;
     }
 
-    public void setPeriod(final int channelIndex, final int period) {
-        this.waveGenerators[channelIndex].setPeriod(period);
+    private void apply(final int kind, final int channel, final int value) {
+        switch (kind) {
+            case VOLUME:
+                amplitude[channel] = FULL_AMPLITUDE * Math.max(0, Math.min(MAX_VOLUME_LEVEL, value)) / MAX_VOLUME_LEVEL;
+                break;
+            case TONE:
+                toneGenerators[channel].setFrequency(toneFrequency(value), SAMPLE_RATE);
+                if (channel == 2) {
+                    // Set the noise generator's period from Channel 1
+                    noiseGenerator.setPeriod(value / 2);
+                }
+                break;
+            case NOISE:
+                noiseGenerator.setNoiseTypeIndex(value);
+                break;
+        }
     }
 
-    public void setFrequency(final int channelIndex, final int frequency) {
-        this.waveGenerators[channelIndex].setFrequency(frequency, SAMPLE_RATE);
+    // A tone register of zero behaves as 0x400
+    private static double toneFrequency(final int register) {
+        return (4_000_000.0 / 32.0) / ((register == 0) ? 0x400 : register);
     }
 
     public void setPaused(final boolean paused) {
         this.paused = paused;
     }
 
+    @Override
+    public int getBlocksPerSecond() {
+        return SAMPLE_RATE / FRAME_SIZE;
+    }
+
+    // A real time sink blocks once it is full, so after the first few this is the number of frames it has played
+    @Override
+    public long getBlocksConsumed() {
+        return framesWritten;
+    }
+
+    @Override
+    public boolean awaitBlocksConsumed(final long count, final long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        frameWaiter = Thread.currentThread();
+        try {
+            long remaining;
+            while (framesWritten < count) {
+                if ((remaining = deadline - System.nanoTime()) <= 0L) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            frameWaiter = null;
+        }
+    }
+
     @Override
     public void run() {
         try {
             while (!stopRequested) {
-                for (int c = 0; c < channelCount; c++) {
-                    for (int i = 0; i < data[c].length; i++) {
-                        final double wv = (paused) ? 0.0 : waveGenerators[c].next();
-                        final byte b = (byte) (127 * wv * volume[c]);
-                        data[c][i] = b;
+                applyChanges();
+                if (nextSample()) {
+                    framesWritten = framesWritten + 1;
+                    final Thread waiter = frameWaiter;
+                    if (waiter != null) {
+                        LockSupport.unpark(waiter);
                     }
                 }
-                for (int c = 0; c < channelCount; c++) {
-                    lines[c].write(data[c], 0, data[c].length);
-                }
             }
         } catch (Exception ex) {
             ex.printStackTrace();
         }
     }
+
+    // Mixes one sample, and writes out the frame if that fills it - true if it did
+    private boolean nextSample() {
+        int sample = 0;
+        if (!paused) {
+            for (int c = 0; c < toneGenerators.length; c++) {
+                sample += toneGenerators[c].next() * amplitude[c];
+            }
+            sample += noiseGenerator.next() * amplitude[toneGenerators.length];
+        }
+        data[frameSamples * BYTES_PER_SAMPLE] = (byte) (sample >> 8);
+        data[frameSamples * BYTES_PER_SAMPLE + 1] = (byte) sample;
+        sampleCount++;
+        if (++frameSamples == FRAME_SIZE) {
+            sink.write(data, 0, data.length);
+            frameSamples = 0;
+            return true;
+        }
+        return false;
+    }
 }
@@ -4,8 +4,12 @@ package org.javabeeb.sound;
 // Partially based on  https://github.com/mattgodbolt/jsbeeb/blob/main/soundchip.js
 //
 
+import org.javabeeb.clock.AudioPacer;
 import org.javabeeb.util.StateKey;
 
+import java.io.IOException;
+import java.util.Objects;
+
 @StateKey(key = "soundChip")
 public final class MultiSoundChip implements SoundChip {
 
@@ -15,21 +19,30 @@ public final class MultiSoundChip implements SoundChip {
     @StateKey(key = "latchedRegister")
     private int latchedRegister;
 
-    private final NoiseGenerator noiseGenerator = new NoiseGenerator();
+    private final AudioSink sink;
+
+    // Null if the sink throws the sound away - the registers are still kept up to date
     private final MultiSoundChannel soundChannel;
 
-    public MultiSoundChip() throws Exception {
-        final WaveGenerator[] waveGenerators = new WaveGenerator[4];
-        for (int i = 0; i < 3; i++) {
-            waveGenerators[i] = new SquareWaveGenerator(20);
+    public MultiSoundChip(final AudioSink sink) {
+        this.sink = Objects.requireNonNull(sink);
+        if (sink.isDiscarding()) {
+            this.soundChannel = null;
+        } else {
+            final SquareWaveGenerator[] toneGenerators = new SquareWaveGenerator[3];
+            for (int i = 0; i < 3; i++) {
+                toneGenerators[i] = new SquareWaveGenerator(20);
+            }
+            this.soundChannel = new MultiSoundChannel(toneGenerators, new NoiseGenerator(), sink);
+            if (sink.isRealTime()) {
+                this.soundChannel.start();
+            }
         }
-        waveGenerators[3] = noiseGenerator;
-        this.soundChannel = new MultiSoundChannel(waveGenerators);
-        this.soundChannel.start();
     }
 
+    // Decoded here, on the emulation thread, and handed to the sound channel to make at the same point in its output
     @Override
-    public void accept(final int value) {
+    public void accept(final int value, final long cycle) {
         int command;
         int channel;
         if ((value & 0x80) != 0) {
@@ -43,32 +56,44 @@ public final class MultiSoundChip implements SoundChip {
 
         if ((command & 0x10) != 0) {
             // Volume
-            int newVolume = 15 - (value & 0xF);
-            final double vol = newVolume / 15.0;
-            soundChannel.setVolume(channel, vol);
+            post(cycle, MultiSoundChannel.VOLUME, channel, 15 - (value & 0xF));
         } else if ((command & 0x80) != 0) {
             if (channel == 3) {
                 register[channel] = value & 0x7;
-                noiseGenerator.setNoiseTypeIndex(register[channel]);
+                post(cycle, MultiSoundChannel.NOISE, channel, register[channel]);
             } else {
                 register[channel] = (register[channel] & ~0x0f) | (value & 0x0f);
             }
         } else {
             register[channel] = (register[channel] & 0x0f) | ((value & 0x3f) << 4);
-            soundChannel.setFrequency(channel, (int) freq(register[channel]));
-            if (channel == 2) {
-                // Set the noise generator's period from Channel 1
-                soundChannel.setPeriod(3, register[2] / 2);
-            }
+            post(cycle, MultiSoundChannel.TONE, channel, register[channel]);
+        }
+    }
+
+    private void post(final long cycle, final int kind, final int channel, final int value) {
+        if (soundChannel != null) {
+            soundChannel.post(cycle, kind, channel, value);
         }
     }
 
     @Override
     public void setPaused(boolean paused) {
-        soundChannel.setPaused(paused);
+        if (soundChannel != null) {
+            soundChannel.setPaused(paused);
+        }
+    }
+
+    @Override
+    public AudioPacer getAudioPacer() {
+        return (soundChannel != null && sink.isRealTime()) ? soundChannel : null;
     }
 
-    private static double freq(final int freq) {
-        return (4_000_000.0 / 32.0) / freq;
+    @Override
+    public void close(final long cycle) throws IOException {
+        if (soundChannel != null) {
+            soundChannel.close(cycle);
+        } else {
+            sink.close();
+        }
     }
 }
@@ -1,91 +1,63 @@
 package org.javabeeb.sound;
 
-import java.util.Objects;
-import java.util.function.IntUnaryOperator;
+public final class NoiseGenerator implements WaveGenerator {
 
-public class NoiseGenerator implements WaveGenerator {
+    private static final int LFSR_RESET = 1 << 14;
 
-    private static final int P1 = 7;
-    private static final int P2 = 13;
-    private static final int P3 = 26;
+    // The number of samples between shifts of the LFSR for noise types 0 - 2 (periodic) and 4 - 6 (white). Types 3
+    // and 7 take theirs from tone channel 2.
+    private static final int[] PERIODIC_PERIODS = {7, 13, 26};
+    private static final int[] WHITE_PERIODS = {2, 8, 16};
 
-    private enum NoiseType {
+    private int lfsr = LFSR_RESET;
+    private boolean white = true;
+    private int rate = 0;
 
-        PERIODIC_HIGH(NoiseGenerator::shiftLfsrPeriodicNoise, p -> P1),
-        PERIODIC_MEDIUM(NoiseGenerator::shiftLfsrPeriodicNoise, p -> P2),
-        PERIODIC_LOW(NoiseGenerator::shiftLfsrPeriodicNoise, p -> P3),
-        PERIODIC_CHANNEL_1(NoiseGenerator::shiftLfsrPeriodicNoise, p -> p),
-
-        WHITE_HIGH(NoiseGenerator::shiftLfsrWhiteNoise, p -> 2),
-        WHITE_MEDIUM(NoiseGenerator::shiftLfsrWhiteNoise, p -> 8),
-        WHITE_LOW(NoiseGenerator::shiftLfsrWhiteNoise, p -> 16),
-        WHITE_CHANNEL_1(NoiseGenerator::shiftLfsrWhiteNoise, p -> p)
-        ;
-
-        final IntUnaryOperator lfsrShifter;
-        final IntUnaryOperator incOperator;
-
-        NoiseType(final IntUnaryOperator lfsrShifter, final IntUnaryOperator incOperator) {
-            this.lfsrShifter = Objects.requireNonNull(lfsrShifter);
-            this.incOperator = Objects.requireNonNull(incOperator);
-        }
-
-        int shiftLFSR(final int lsr) {
-            return lfsrShifter.applyAsInt(lsr);
-        }
+    private int period = WHITE_PERIODS[0];
+    private int periodLatch = 100;
+    private int samplesSinceShift = 0;
 
-        int getPeriod(final int period) {
-            return incOperator.applyAsInt(period);
+    @Override
+    public int next() {
+        if (samplesSinceShift >= period) {
+            lfsr = white ? shiftLfsrWhiteNoise(lfsr) : shiftLfsrPeriodicNoise(lfsr);
+            samplesSinceShift = 0;
         }
-    };
-
-    private static final NoiseType[] NOISE_TYPES = NoiseType.values();
-    private int lfsr;
+        samplesSinceShift++;
+        return ((lfsr & 1) != 0) ? 1 : -1;
+    }
 
     private static int shiftLfsrWhiteNoise(int lfsr) {
-        var bit = (lfsr & 1) ^ ((lfsr & (1 << 1)) >>> 1);
-        lfsr = (lfsr >>> 1) | (bit << 14);
-        return lfsr;
+        final int bit = (lfsr & 1) ^ ((lfsr & (1 << 1)) >>> 1);
+        return (lfsr >>> 1) | (bit << 14);
     }
 
     private static int shiftLfsrPeriodicNoise(int lfsr) {
         lfsr >>= 1;
-        if (lfsr == 0) lfsr = 1 << 14;
+        if (lfsr == 0) lfsr = LFSR_RESET;
         return lfsr;
     }
 
-    private NoiseType noiseType = NoiseType.WHITE_HIGH;
-
-    private long tick = 0;
-    private long lastTransition = 0;
-    private int period;
-    private int periodLatch = 100;
-    private boolean output = true;
-
-    @Override
-    public double next() {
-        period = noiseType.getPeriod(periodLatch);
-        if (tick >= (lastTransition + period)) {
-            output = !output;
-            lastTransition = tick;
-            lfsr = noiseType.shiftLFSR(lfsr);
-        }
-        tick++;
-        if ((lfsr & 1) != 0) {
-            return 1.0;
-        } else {
-            return -1.0;
-        }
-    }
-
     public void setNoiseTypeIndex(final int noiseTypeIndex) {
-        this.noiseType = NOISE_TYPES[noiseTypeIndex & 0x7];
-        this.period = noiseType.getPeriod(periodLatch);
+        this.white = (noiseTypeIndex & 0x4) != 0;
+        this.rate = noiseTypeIndex & 0x3;
+        // As on the real chip, writing the noise register resets the shift register
+        this.lfsr = LFSR_RESET;
+        updatePeriod();
     }
 
     @Override
     public void setPeriod(long period) {
-        // This is for the *_CHANNEL_1 types
+        // This is for the noise types that follow tone channel 2
         this.periodLatch = (int) ((period & 0x3FF) >>> 1);
+        updatePeriod();
+    }
+
+    private void updatePeriod() {
+        if (rate == 3) {
+            period = periodLatch;
+        } else {
+            period = white ? WHITE_PERIODS[rate] : PERIODIC_PERIODS[rate];
+        }
     }
 }
@@ -0,0 +1,29 @@
+package org.javabeeb.sound;
+
+public final class NullAudioSink implements AudioSink {
+
+    public static final NullAudioSink INSTANCE = new NullAudioSink();
+
+    private NullAudioSink() {
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return false;
+    }
+
+    @Override
+    public boolean isDiscarding() {
+        return true;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        // Do nothing
+    }
+
+    @Override
+    public void close() {
+        // Do nothing
+    }
+}
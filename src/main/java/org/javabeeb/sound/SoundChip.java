@@ -1,6 +1,19 @@
 package org.javabeeb.sound;
 
+import org.javabeeb.clock.AudioPacer;
+
+import java.io.IOException;
+
 public interface SoundChip {
-    void accept(final int cmd);
+    // The cycle is the 2Mhz device time of the write
+    void accept(final int cmd, final long cycle);
     void setPaused(boolean paused);
+
+    // Finishes the sound at the given device cycle and closes the sink
+    void close(long cycle) throws IOException;
+
+    // Null if there is no audio output
+    default AudioPacer getAudioPacer() {
+        return null;
+    }
 }
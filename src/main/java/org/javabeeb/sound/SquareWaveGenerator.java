@@ -1,29 +1,38 @@
 package org.javabeeb.sound;
 
-public class SquareWaveGenerator implements WaveGenerator {
+//
+// A phase accumulator - the top bit of the phase is the output, and the increment is added to it every sample, so a
+// whole cycle of the wave takes 2^32 / increment samples
+//
+public final class SquareWaveGenerator implements WaveGenerator {
 
-    private long tick = 0;
-    private long lastTransition = 0;
-    private long period = 20;
+    // Half a cycle per sample - the highest frequency that can be represented
+    private static final long MAX_INCREMENT = 1L << 31;
 
-    private double currentValue = 1.0;
+    private int phase = 0;
+    private int increment;
 
     public SquareWaveGenerator(final int initialPeriod) {
         setPeriod(initialPeriod);
     }
 
     @Override
-    public double next() {
-        if (tick >= (lastTransition + period)) {
-            currentValue = -currentValue;
-            lastTransition = tick;
-        }
-        tick++;
-        return currentValue;
+    public int next() {
+        phase += increment;
+        return (phase < 0) ? -1 : 1;
     }
 
     @Override
     public void setPeriod(long period) {
-        this.period = Math.max(1L, period);
+        setIncrement(MAX_INCREMENT / Math.max(1L, period));
+    }
+
+    @Override
+    public void setFrequency(double frequency, int sampleRate) {
+        setIncrement(Math.round(frequency * (1L << 32) / sampleRate));
+    }
+
+    private void setIncrement(final long increment) {
+        this.increment = (int) Math.max(1L, Math.min(MAX_INCREMENT, increment));
     }
 }
@@ -0,0 +1,143 @@
+package org.javabeeb.sound;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+//
+// Writes the sound to a 16 bit mono PCM WAV file as fast as it is made. Samples are gathered into buffers which are
+// written out on a thread of their own, so the emulation only waits if it gets a few buffers ahead of the disk.
+//
+public final class WavFileAudioSink implements AudioSink {
+
+    private static final int HEADER_SIZE = 44;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BUFFER_COUNT = 4;
+
+    // Tells the writer there's nothing more to come
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final BlockingQueue<ByteBuffer> fullBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+    private final Thread writer;
+
+    private ByteBuffer buffer;
+    private long dataLength;
+    private boolean closed;
+
+    // The first write to fail - the writer carries on taking buffers so as never to hold up the emulation
+    private volatile IOException failure;
+
+    public WavFileAudioSink(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(HEADER_SIZE);
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        this.buffer = freeBuffers.remove();
+        this.writer = new Thread(this::run, "WAV writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return false;
+    }
+
+    // WAV samples are little-endian
+    @Override
+    public void write(final byte[] data, final int offset, final int length) {
+        if (closed) {
+            throw new IllegalStateException("sink is closed");
+        }
+        for (int i = offset; i < offset + length - 1; i += BYTES_PER_SAMPLE) {
+            if (!buffer.hasRemaining()) {
+                buffer = exchange(buffer);
+            }
+            buffer.putShort((short) ((data[i] << 8) | (data[i + 1] & 0xFF)));
+        }
+        dataLength += length & ~1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            fullBuffers.put(buffer);
+            fullBuffers.put(END);
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing", ex);
+        }
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            channel.write(header(dataLength), 0L);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer exchange(final ByteBuffer full) {
+        try {
+            fullBuffers.put(full);
+            return freeBuffers.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final ByteBuffer b = fullBuffers.take();
+                if (b == END) {
+                    return;
+                }
+                b.flip();
+                try {
+                    while (b.hasRemaining() && failure == null) {
+                        channel.write(b);
+                    }
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+                b.clear();
+                freeBuffers.put(b);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ByteBuffer header(final long dataLength) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) (HEADER_SIZE - 8 + dataLength));
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) 1); // PCM
+        header.putShort((short) 1); // Mono
+        header.putInt(SAMPLE_RATE);
+        header.putInt(SAMPLE_RATE * BYTES_PER_SAMPLE);
+        header.putShort((short) BYTES_PER_SAMPLE);
+        header.putShort((short) (8 * BYTES_PER_SAMPLE));
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) dataLength);
+        header.flip();
+        return header;
+    }
+}
@@ -2,11 +2,12 @@ package org.javabeeb.sound;
 
 public interface WaveGenerator {
 
-    double next();
+    // The next sample, as 1 or -1
+    int next();
 
     void setPeriod(long period);
 
-    default void setFrequency(int frequency, int sampleRate) {
-        setPeriod(Math.round((double) sampleRate / frequency / 2));
+    default void setFrequency(double frequency, int sampleRate) {
+        setPeriod(Math.round(sampleRate / frequency / 2));
     }
 }
@@ -1,7 +1,5 @@
 package org.javabeeb.teletext;
 
-import java.awt.*;
-
 interface CellProcessor {
-    void process(TeletextRenderer renderer, Graphics2D g, int x, int y, int width, int height);
+    void process(TeletextRenderer renderer, int[] pixels, int scanWidth, int x, int y);
 }
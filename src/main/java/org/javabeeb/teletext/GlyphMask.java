@@ -0,0 +1,92 @@
+package org.javabeeb.teletext;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+//
+// The coverage of one character cell by a glyph, rasterised once. Cells are painted straight into an image's pixels
+// from tiles of the glyph in each foreground / background colour pair, made the first time the pair is needed.
+//
+final class GlyphMask {
+
+    static final int WIDTH = TeletextConstants.TELETEXT_CHAR_WIDTH;
+    static final int HEIGHT = TeletextConstants.TELETEXT_CHAR_HEIGHT;
+
+    static final GlyphMask BLANK = fromRectangles();
+
+    // Alpha (0 - 255) per pixel, row by row
+    private final byte[] alpha;
+
+    // Indexed by foreground * colour count + background
+    private final Tile[] tiles = new Tile[TeletextConstants.getColourCount() * TeletextConstants.getColourCount()];
+
+    private GlyphMask(final byte[] alpha) {
+        this.alpha = alpha;
+    }
+
+    // Takes the alpha of a WIDTH x HEIGHT area of an image
+    static GlyphMask fromImage(final BufferedImage image, final int y) {
+        final byte[] alpha = new byte[WIDTH * HEIGHT];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                alpha[row * WIDTH + col] = (byte) (image.getRGB(col, y + row) >>> 24);
+            }
+        }
+        return new GlyphMask(alpha);
+    }
+
+    static GlyphMask fromRectangles(final Rectangle... rectangles) {
+        final byte[] alpha = new byte[WIDTH * HEIGHT];
+        for (Rectangle r : rectangles) {
+            for (int row = r.y; row < r.y + r.height; row++) {
+                for (int col = r.x; col < r.x + r.width; col++) {
+                    alpha[row * WIDTH + col] = (byte) 0xFF;
+                }
+            }
+        }
+        return new GlyphMask(alpha);
+    }
+
+    // Paints the cell at (x, y), which must lie wholly within the pixels
+    void paint(final int[] pixels, final int scanWidth, final int x, final int y, final int foreground, final int background) {
+        final int index = foreground * TeletextConstants.getColourCount() + background;
+        Tile tile = tiles[index];
+        if (tile == null) {
+            tile = new Tile(createTilePixels(TeletextConstants.getRGB(foreground), TeletextConstants.getRGB(background)));
+            tiles[index] = tile;
+        }
+        final int[] tilePixels = tile.pixels;
+        int i = y * scanWidth + x;
+        for (int row = 0; row < HEIGHT; row++) {
+            System.arraycopy(tilePixels, row * WIDTH, pixels, i, WIDTH);
+            i += scanWidth;
+        }
+    }
+
+    private int[] createTilePixels(final int foreground, final int background) {
+        final int[] tilePixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < tilePixels.length; i++) {
+            tilePixels[i] = blend(background, foreground, alpha[i] & 0xFF);
+        }
+        return tilePixels;
+    }
+
+    private static int blend(final int background, final int foreground, final int a) {
+        int result = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            final int b = (background >>> shift) & 0xFF;
+            final int f = (foreground >>> shift) & 0xFF;
+            result |= ((f * a + b * (0xFF - a) + 127) / 0xFF) << shift;
+        }
+        return result;
+    }
+
+    // The final field means a tile made on one thread is seen whole by any other that finds it
+    private static final class Tile {
+        final int[] pixels;
+
+        Tile(final int[] pixels) {
+            this.pixels = pixels;
+        }
+    }
+}
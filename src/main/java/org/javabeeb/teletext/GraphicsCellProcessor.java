@@ -1,43 +1,49 @@
 package org.javabeeb.teletext;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 final class GraphicsCellProcessor implements CellProcessor {
 
-    private final int bits;
+    private final GlyphMask contiguousMask;
+    private final GlyphMask separatedMask;
 
     GraphicsCellProcessor(final int bits) {
-        this.bits = bits;
+        this.contiguousMask = createMask(bits, false);
+        this.separatedMask = createMask(bits, true);
     }
 
     @Override
-    public void process(TeletextRenderer renderer, Graphics2D g, int x, int y, int width, int height) {
-        g.setColor(renderer.getGraphicsColour());
-        paintGraphics(g, bits, !renderer.isContiguousGraphics(), x, y, width, height);
+    public void process(TeletextRenderer renderer, int[] pixels, int scanWidth, int x, int y) {
+        final GlyphMask mask = renderer.isContiguousGraphics() ? contiguousMask : separatedMask;
+        renderer.paintGlyph(mask, renderer.getGraphicsColourIndex(), pixels, scanWidth, x, y);
     }
 
-    private static void paintGraphics(final Graphics2D g, final int bits, final boolean gap, final int x, final int y, final int width, final int height) {
-        final int pw = width / 2;
+    private static GlyphMask createMask(final int bits, final boolean gap) {
+        final int pw = GlyphMask.WIDTH / 2;
         final int gw = gap ? 2 : 0;
         final int gh = gap ? 2 : 0;
 
+        final List<Rectangle> rectangles = new ArrayList<>();
         if ((bits & 1) != 0) {
-            g.fillRect(x, y, pw - gw, 6 - gh);
+            rectangles.add(new Rectangle(0, 0, pw - gw, 6 - gh));
         }
         if ((bits & 2) != 0) {
-            g.fillRect(x + pw, y, pw - gw, 6 - gh);
+            rectangles.add(new Rectangle(pw, 0, pw - gw, 6 - gh));
         }
         if ((bits & 4) != 0) {
-            g.fillRect(x, y + 6, pw - gw, 8 - gh);
+            rectangles.add(new Rectangle(0, 6, pw - gw, 8 - gh));
         }
         if ((bits & 8) != 0) {
-            g.fillRect(x + pw, y + 6, pw - gw, 8 - gh);
+            rectangles.add(new Rectangle(pw, 6, pw - gw, 8 - gh));
         }
         if ((bits & 16) != 0) {
-            g.fillRect(x, y + 14, pw - gw, 6 - gh);
+            rectangles.add(new Rectangle(0, 14, pw - gw, 6 - gh));
         }
         if ((bits & 32) != 0) {
-            g.fillRect(x + pw, y + 14, pw - gw, 6 - gh);
+            rectangles.add(new Rectangle(pw, 14, pw - gw, 6 - gh));
         }
+        return GlyphMask.fromRectangles(rectangles.toArray(new Rectangle[0]));
     }
 }
@@ -16,6 +16,10 @@ final class TeletextConstants {
         return PALETTE.getColour(index);
     }
 
+    public static int getRGB(final int index) {
+        return PALETTE.getColour(index).getRGB() & 0xFFFFFF;
+    }
+
     public static int getColourCount() {
         return 8;
     }
@@ -1,10 +1,13 @@
 package org.javabeeb.teletext;
 
-import org.javabeeb.screen.SystemPalette;
+final class TeletextRenderer {
 
-import java.awt.*;
+    private static final int BLACK = 0;
+    private static final int WHITE = 7;
 
-final class TeletextRenderer {
+    // See ControlCodeProcessorSet
+    private static final int NORMAL_HEIGHT_CODE = 140;
+    private static final int DOUBLE_HEIGHT_CODE = 141;
 
     private final CellProcessorSet alphaProcessorSet = new CompoundCellProcessorSet(
             new ControlCodeProcessorSet(),
@@ -18,9 +21,9 @@ final class TeletextRenderer {
 
     private CellProcessorSet cellProcessorSet;
     private int foregroundIndex;
-    private Color background;
+    private int backgroundIndex;
     private boolean graphicsEnabled;
-    private Color graphicsColour;
+    private int graphicsColourIndex;
     private boolean flashing;
     private boolean doubleHeight;
     private boolean conceal;
@@ -29,16 +32,20 @@ final class TeletextRenderer {
     private boolean textShowing = true;
     private boolean bottom = true;
 
+    // The background the cell being painted started with, and whether a glyph has been painted into it
+    private int cellBackgroundIndex;
+    private boolean cellPainted;
+
     public TeletextRenderer() {
         resetToDefaults();
     }
 
     public void resetToDefaults() {
         this.cellProcessorSet = alphaProcessorSet;
-        this.foregroundIndex = 7;
-        this.background = SystemPalette.BLACK;
+        this.foregroundIndex = WHITE;
+        this.backgroundIndex = BLACK;
         this.graphicsEnabled = false;
-        this.graphicsColour = SystemPalette.WHITE;
+        this.graphicsColourIndex = WHITE;
         this.flashing = false;
         this.doubleHeight = false;
         this.conceal = false;
@@ -50,32 +57,37 @@ final class TeletextRenderer {
         return foregroundIndex;
     }
 
-    public Color getGraphicsColour() {
-        return graphicsColour;
+    public int getGraphicsColourIndex() {
+        return graphicsColourIndex;
     }
 
-    public void paintCell(final Graphics2D g, final int v, final int x, final int y, final int width, final int height) {
-        //
-        // Paint background
-        //
-        g.setColor(background);
-        g.fillRect(x, y, width, height);
+    // The cell at (x, y) must lie wholly within the pixels
+    public void paintCell(final int[] pixels, final int scanWidth, final int v, final int x, final int y) {
+        cellBackgroundIndex = backgroundIndex;
+        cellPainted = false;
 
         final CellProcessor processor = cellProcessorSet.getProcessor(v);
         if (processor != null) {
-            processor.process(this, g, x, y, width, height);
+            processor.process(this, pixels, scanWidth, x, y);
+        }
+        if (!cellPainted) {
+            GlyphMask.BLANK.paint(pixels, scanWidth, x, y, foregroundIndex, cellBackgroundIndex);
         }
     }
 
+    void paintGlyph(final GlyphMask mask, final int colourIndex, final int[] pixels, final int scanWidth, final int x, final int y) {
+        mask.paint(pixels, scanWidth, x, y, colourIndex, cellBackgroundIndex);
+        cellPainted = true;
+    }
+
     public void enableText(final int colourIndex) {
         foregroundIndex = colourIndex;
-        graphicsColour = null;
         graphicsEnabled = false;
         cellProcessorSet = alphaProcessorSet;
     }
 
     public void enableGraphics(final int colourIndex) {
-        graphicsColour = TeletextConstants.getColour(colourIndex);
+        graphicsColourIndex = colourIndex;
         graphicsEnabled = true;
         cellProcessorSet = graphicsProcessorSet;
     }
@@ -93,6 +105,20 @@ final class TeletextRenderer {
         }
     }
 
+    // What isBottom would be after painting the codes from the given state, without painting them
+    static boolean isBottomAfter(final byte[] codes, final int from, final int length, final boolean bottom) {
+        boolean ret = bottom;
+        for (int i = from; i < from + length; i++) {
+            final int code = codes[i] & 0xFF;
+            if (code == DOUBLE_HEIGHT_CODE) {
+                ret = !ret;
+            } else if (code == NORMAL_HEIGHT_CODE) {
+                ret = false;
+            }
+        }
+        return ret;
+    }
+
     public void concealDisplay() {
         this.conceal = true;
     }
@@ -106,11 +132,11 @@ final class TeletextRenderer {
     }
 
     public void blackBackground() {
-        background = SystemPalette.BLACK;
+        backgroundIndex = BLACK;
     }
 
     public void newBackground() {
-        background = TeletextConstants.getColour(foregroundIndex);
+        backgroundIndex = foregroundIndex;
     }
 
     public void setHoldGraphics(boolean holdGraphics) {
@@ -10,20 +10,70 @@ import org.javabeeb.screen.SystemPalette;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//
+// Paints Mode 7 a row at a time into a frame buffer of its own, which is then copied to the image. A row is only
+// painted again when something it depends on has changed - its bytes, whether it starts on the bottom half of double
+// height text, where the cursor is in it and (if it flashes) the flash phase.
+//
+// Rows are independent of each other once it is known whether each starts on the bottom half of double height text,
+// so when many need painting they are shared out over the common ForkJoinPool - unless it is already busy.
+//
 public final class TeletextScreenRenderer extends AbstractScreenRenderer {
 
-    private final TeletextRenderer renderer = new TeletextRenderer();
+    private static final int COLUMNS = 40;
+    private static final int ROWS = 25;
+    private static final int FLASH_CODE = 136;
+    private static final int CURSOR_COLOUR = Color.WHITE.getRGB() & 0xFFFFFF;
+    private static final int BLACK = SystemPalette.BLACK.getRGB() & 0xFFFFFF;
+
+    // Fewer rows than this are quicker to paint than to share out
+    private static final int PARALLEL_MIN_ROWS = 8;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // One per row, so that rows can be painted at the same time
+    private final TeletextRenderer[] renderers = new TeletextRenderer[ROWS];
+
+    // Toggled by the flash timer, and only read at the start of a frame
+    private volatile boolean flashShowing = true;
+
+    //
+    // What the rows depend on - as read for the frame about to be painted, and as they were when last painted
+    //
+    private final byte[] screenBytes = new byte[COLUMNS * ROWS];
+    private final boolean[] bottomAtStart = new boolean[ROWS];
+    private final int[] cursorColumn = new int[ROWS];
+    private boolean textShowing;
+
+    // Set when isRefreshNeeded has just read the screen for the frame refreshWholeImage is about to paint
+    private boolean screenRead;
+
+    private final byte[] paintedBytes = new byte[COLUMNS * ROWS];
+    private final boolean[] paintedBottomAtStart = new boolean[ROWS];
+    private final int[] paintedCursorColumn = new int[ROWS];
+    private final boolean[] paintedTextShowing = new boolean[ROWS];
+    private final boolean[] rowPainted = new boolean[ROWS];
+
+    private int[] frameBuffer;
+    private int frameWidth;
 
     public TeletextScreenRenderer(Memory memory, SystemVIA systemVIA, Crtc6845 crtc6845, VideoULA videoULA) {
         super(memory, systemVIA, crtc6845, videoULA);
+        for (int row = 0; row < ROWS; row++) {
+            renderers[row] = new TeletextRenderer();
+        }
         final Timer flashTimer = new Timer("teletext-flasher", true);
         final TimerTask task = new TimerTask() {
             @Override
             public void run() {
-                renderer.setTextShowing(!renderer.isTextShowing());
+                flashShowing = !flashShowing;
             }
         };
         flashTimer.scheduleAtFixedRate(task, 1000L, 1000L);
@@ -35,7 +85,7 @@ public final class TeletextScreenRenderer extends AbstractScreenRenderer {
     }
 
     @Override
-    public void tick(final BufferedImage image, final ClockDefinition clockDefinition, final long elapsedNanos) {
+    public void advance(final BufferedImage image, final ClockDefinition clockDefinition, final int inputCycles, final long elapsedNanos) {
         throw new UnsupportedOperationException();
     }
 
@@ -45,39 +95,151 @@ public final class TeletextScreenRenderer extends AbstractScreenRenderer {
     }
 
     @Override
-    public void refreshWholeImage(BufferedImage img) {
-        final Graphics2D g = img.createGraphics();
+    public boolean isRefreshNeeded() {
+        if (frameBuffer == null) {
+            return true;
+        }
+        readScreen();
+        for (int row = 0; row < ROWS; row++) {
+            if (isRowChanged(row)) {
+                screenRead = true;
+                return true;
+            }
+        }
+        return false;
+    }
 
-        renderer.setBottom(true);
+    @Override
+    public void refreshWholeImage(BufferedImage img) {
+        final int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        if (frameBuffer == null || frameBuffer.length != pixels.length || frameWidth != img.getWidth()) {
+            frameBuffer = new int[pixels.length];
+            frameWidth = img.getWidth();
+            Arrays.fill(frameBuffer, BLACK);
+            Arrays.fill(rowPainted, false);
+        }
 
-        final int leftMargin = (img.getWidth() - (TeletextConstants.TELETEXT_CHAR_WIDTH * 40)) / 2;
+        if (!screenRead) {
+            readScreen();
+        }
+        screenRead = false;
+        final int[] changedRows = new int[ROWS];
+        int changedCount = 0;
+        for (int row = 0; row < ROWS; row++) {
+            if (isRowChanged(row)) {
+                changedRows[changedCount++] = row;
+            }
+        }
+        if (changedCount >= PARALLEL_MIN_ROWS && isPoolAvailable()) {
+            pool.invoke(new PaintRows(changedRows, 0, changedCount));
+        } else {
+            for (int i = 0; i < changedCount; i++) {
+                paintRow(changedRows[i]);
+            }
+        }
+        System.arraycopy(frameBuffer, 0, pixels, 0, pixels.length);
+    }
 
-        g.setColor(SystemPalette.BLACK);
-        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+    private boolean isPoolAvailable() {
+        return pool.getParallelism() > 1 && pool.getActiveThreadCount() == 0 && !pool.hasQueuedSubmissions();
+    }
 
-        final int unadjustedStartAddress = crtc6845.getScreenStartAddress();
-        int address = adjustMode7Address(unadjustedStartAddress);
+    private void readScreen() {
+        int address = adjustMode7Address(crtc6845.getScreenStartAddress());
         final int cursorAddress = adjustMode7Address(crtc6845.getCursorAddress());
-
-        Rectangle cursorRect = null;
-
-        for (int y = 0; y < (TeletextConstants.TELETEXT_CHAR_HEIGHT * 25); y += TeletextConstants.TELETEXT_CHAR_HEIGHT) {
-
-            renderer.resetToDefaults();
-
-            for (int x = leftMargin; x < (TeletextConstants.TELETEXT_CHAR_WIDTH * 40 + leftMargin); x += TeletextConstants.TELETEXT_CHAR_WIDTH) {
-                if (crtc6845.isCursorEnabled() && crtc6845.isCursorOn() && videoULA.isCursorEnabled() && address == cursorAddress) {
-                    cursorRect = new Rectangle(x, y, TeletextConstants.TELETEXT_CHAR_WIDTH, TeletextConstants.TELETEXT_CHAR_HEIGHT);
+        final boolean cursorOn = crtc6845.isCursorEnabled() && crtc6845.isCursorOn() && videoULA.isCursorEnabled();
+        textShowing = flashShowing;
+
+        boolean bottom = true;
+        for (int row = 0; row < ROWS; row++) {
+            bottomAtStart[row] = bottom;
+            cursorColumn[row] = -1;
+            for (int col = 0; col < COLUMNS; col++) {
+                if (cursorOn && address == cursorAddress) {
+                    cursorColumn[row] = col;
                 }
-                renderer.paintCell(g, memory.readByte(address), x, y, TeletextConstants.TELETEXT_CHAR_WIDTH, TeletextConstants.TELETEXT_CHAR_HEIGHT);
+                screenBytes[row * COLUMNS + col] = (byte) memory.readByte(address);
                 address++;
                 if (address >= 0x8000) {
                     address -= 1024;
                 }
             }
+            bottom = TeletextRenderer.isBottomAfter(screenBytes, row * COLUMNS, COLUMNS, bottom);
+        }
+    }
+
+    private boolean isRowChanged(final int row) {
+        final int from = row * COLUMNS;
+        return !rowPainted[row] ||
+                paintedBottomAtStart[row] != bottomAtStart[row] ||
+                paintedCursorColumn[row] != cursorColumn[row] ||
+                (paintedTextShowing[row] != textShowing && isFlashing(row)) ||
+                !Arrays.equals(paintedBytes, from, from + COLUMNS, screenBytes, from, from + COLUMNS);
+    }
+
+    private boolean isFlashing(final int row) {
+        for (int i = row * COLUMNS; i < (row + 1) * COLUMNS; i++) {
+            if ((screenBytes[i] & 0xFF) == FLASH_CODE) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        paintCursor(g, cursorRect, TeletextConstants.TELETEXT_CHAR_HEIGHT / 8);
+    private void paintRow(final int row) {
+        final int leftMargin = (frameWidth - (TeletextConstants.TELETEXT_CHAR_WIDTH * COLUMNS)) / 2;
+        final int y = row * TeletextConstants.TELETEXT_CHAR_HEIGHT;
+
+        final TeletextRenderer renderer = renderers[row];
+        renderer.resetToDefaults();
+        renderer.setBottom(bottomAtStart[row]);
+        renderer.setTextShowing(textShowing);
+
+        int x = leftMargin;
+        for (int col = 0; col < COLUMNS; col++) {
+            renderer.paintCell(frameBuffer, frameWidth, screenBytes[row * COLUMNS + col] & 0xFF, x, y);
+            x += TeletextConstants.TELETEXT_CHAR_WIDTH;
+        }
+
+        if (cursorColumn[row] >= 0) {
+            final int cursorHeight = TeletextConstants.TELETEXT_CHAR_HEIGHT / 8;
+            final int cx = leftMargin + cursorColumn[row] * TeletextConstants.TELETEXT_CHAR_WIDTH;
+            for (int cy = y + TeletextConstants.TELETEXT_CHAR_HEIGHT - cursorHeight; cy < y + TeletextConstants.TELETEXT_CHAR_HEIGHT; cy++) {
+                Arrays.fill(frameBuffer, cy * frameWidth + cx, cy * frameWidth + cx + TeletextConstants.TELETEXT_CHAR_WIDTH, CURSOR_COLOUR);
+            }
+        }
+
+        System.arraycopy(screenBytes, row * COLUMNS, paintedBytes, row * COLUMNS, COLUMNS);
+        paintedBottomAtStart[row] = bottomAtStart[row];
+        paintedCursorColumn[row] = cursorColumn[row];
+        paintedTextShowing[row] = textShowing;
+        rowPainted[row] = true;
+    }
+
+    @SuppressWarnings("serial")
+    private final class PaintRows extends RecursiveAction {
+
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        PaintRows(final int[] rows, final int from, final int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 2) {
+                for (int i = from; i < to; i++) {
+                    paintRow(rows[i]);
+                }
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new PaintRows(rows, from, mid), new PaintRows(rows, mid, to));
+            }
+        }
     }
 
     private static int adjustMode7Address(final int unadjustedAddress) {
@@ -5,31 +5,22 @@ import java.awt.image.BufferedImage;
 
 class TextCellProcessor implements CellProcessor {
 
-    private final BufferedImage[] images;
-    private final BufferedImage[] topImages;
-    private final BufferedImage[] bottomImages;
+    private final GlyphMask mask;
+    private final GlyphMask topMask;
+    private final GlyphMask bottomMask;
 
     TextCellProcessor(final AlphaDefinition alphaDefinition) {
-        this.images = new BufferedImage[TeletextConstants.getColourCount()];
-        this.topImages = new BufferedImage[TeletextConstants.getColourCount()];
-        this.bottomImages = new BufferedImage[TeletextConstants.getColourCount()];
-        for (int i = 0; i < TeletextConstants.getColourCount(); i++) {
-            images[i] = TeletextAlphaDefinition.createCharacterImage(alphaDefinition, TeletextConstants.getColour(i), false);
-            final BufferedImage doubleHeightImage = TeletextAlphaDefinition.createCharacterImage(alphaDefinition, TeletextConstants.getColour(i), true);
-            final int dh = doubleHeightImage.getHeight();
-            topImages[i] = doubleHeightImage.getSubimage(0, 0, doubleHeightImage.getWidth(), dh / 2);
-            bottomImages[i] = doubleHeightImage.getSubimage(0, dh / 2, doubleHeightImage.getWidth(), dh / 2);
-        }
+        this.mask = GlyphMask.fromImage(TeletextAlphaDefinition.createCharacterImage(alphaDefinition, Color.WHITE, false), 0);
+        final BufferedImage doubleHeightImage = TeletextAlphaDefinition.createCharacterImage(alphaDefinition, Color.WHITE, true);
+        this.topMask = GlyphMask.fromImage(doubleHeightImage, 0);
+        this.bottomMask = GlyphMask.fromImage(doubleHeightImage, GlyphMask.HEIGHT);
     }
 
     @Override
-    public void process(TeletextRenderer renderer, Graphics2D g, int x, int y, int width, int height) {
+    public void process(TeletextRenderer renderer, int[] pixels, int scanWidth, int x, int y) {
         if (renderer.isTextSteady() || renderer.isTextShowing()) {
-            if (renderer.isDoubleHeight()) {
-                g.drawImage((renderer.isBottom() ? bottomImages : topImages)[renderer.getForegroundIndex()], x, y, null);
-            } else {
-                g.drawImage(images[renderer.getForegroundIndex()], x, y, null);
-            }
+            final GlyphMask m = renderer.isDoubleHeight() ? (renderer.isBottom() ? bottomMask : topMask) : mask;
+            renderer.paintGlyph(m, renderer.getForegroundIndex(), pixels, scanWidth, x, y);
         }
     }
 }
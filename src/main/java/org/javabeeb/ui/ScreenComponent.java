@@ -2,6 +2,7 @@ package org.javabeeb.ui;
 
 import org.javabeeb.BBCMicro;
 import org.javabeeb.device.SystemVIA;
+import org.javabeeb.screen.ImageHandoff;
 import org.javabeeb.screen.ScreenImageConsumer;
 import org.javabeeb.screen.SystemPalette;
 
@@ -35,9 +36,8 @@ public final class ScreenComponent extends JComponent implements ScreenImageCons
     private final List<IntConsumer> keyUpListeners = new ArrayList<>();
     private final List<BiConsumer<Integer, Boolean>> keyDownListeners = new ArrayList<>();
 
-    private BufferedImage image;
+    private volatile ImageHandoff imageHandoff;
     private boolean paused;
-    private Point imageOrigin;
 
     private Timer disableCursorTimer;
 
@@ -87,9 +87,8 @@ public final class ScreenComponent extends JComponent implements ScreenImageCons
     }
 
     @Override
-    public void setImage(final BufferedImage image, final Point imageOrigin) {
-        this.image = image;
-        this.imageOrigin = imageOrigin;
+    public void imageReady(final ImageHandoff imageHandoff) {
+        this.imageHandoff = imageHandoff;
         repaint();
     }
 
@@ -122,7 +121,12 @@ public final class ScreenComponent extends JComponent implements ScreenImageCons
         g.setColor(getBackground());
         g.fillRect(1, 1, getWidth() - 2, getHeight() - 2);
 
-        if (image != null) {
+        final ImageHandoff handoff = imageHandoff;
+        if (handoff != null) {
+            // Ours until the next time we take one
+            handoff.takeLatest();
+            final BufferedImage image = handoff.getImage();
+            final Point imageOrigin = handoff.getImageOrigin();
             final int iw = image.getWidth() + IMAGE_BORDER_SIZE * 2;
             final int ih = image.getHeight() + IMAGE_BORDER_SIZE * 2;
 
@@ -3,57 +3,48 @@ package org.javabeeb.util;
 import org.javabeeb.clock.ClockListener;
 import org.javabeeb.clock.ClockDefinition;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+//
+// Tasks are kept in a binary heap ordered by the absolute cycle they're due at, so a tick with nothing due is
+// just a comparison. Tasks are their own heap entries - nothing is allocated when one is (re)scheduled.
+//
 public class DefaultScheduler implements Scheduler, ClockListener {
 
-    private final List<ScheduleEntry> entries = new ArrayList<>();
-    private final List<ScheduleEntry> entriesToRun = new ArrayList<>();
-    private final List<ScheduleEntry> staleEntries = new ArrayList<>();
+    private ScheduledTask[] heap = new ScheduledTask[16];
+    private int size;
+    private long cycle;
+    private long nextSequence;
 
-    private static final class ScheduleEntry {
-        long counter;
-        final ScheduledTask task;
-
-        ScheduleEntry(long counter, ScheduledTask task) {
-            this.counter = counter;
-            this.task = task;
-        }
-
-        boolean tick() {
-            return --counter == 0;
+    @Override
+    public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
+        cycle++;
+        while (size > 0 && heap[0].due <= cycle) {
+            final ScheduledTask task = heap[0];
+            remove(task);
+            task.run();
         }
     }
 
     @Override
-    public void tick(final ClockDefinition clockDefinition, final long elapsedNanos) {
-        if (!entries.isEmpty()) {
-            entriesToRun.clear();
-            boolean run = false;
-            for (ScheduleEntry e : entries) {
-                if (e.tick()) {
-                    entriesToRun.add(e);
-                    run = true;
-                }
-            }
-            if (run) {
-                for (ScheduleEntry e : entriesToRun) {
-                    e.task.run();
-                    staleEntries.add(e);
-                }
-                removeStaleEntries();
-            }
+    public void advance(final long cycles) {
+        final long target = cycle + cycles;
+        while (size > 0 && heap[0].due <= target) {
+            final ScheduledTask task = heap[0];
+            cycle = Math.max(cycle, task.due);
+            remove(task);
+            task.run();
         }
+        cycle = target;
     }
 
-    private void removeStaleEntries() {
-        if (!staleEntries.isEmpty()) {
-            for (ScheduleEntry e : staleEntries) {
-                entries.remove(e);
-            }
-        }
-        staleEntries.clear();
+    public long getCycle() {
+        return cycle;
+    }
+
+    @Override
+    public long getCyclesUntilNextEvent() {
+        return (size == 0) ? Long.MAX_VALUE : Math.max(0L, heap[0].due - cycle);
     }
 
     @Override
@@ -63,20 +54,78 @@ public class DefaultScheduler implements Scheduler, ClockListener {
 
     @Override
     public void schedule(ScheduledTask task, long delay) {
-        entries.add(new ScheduleEntry(delay, task));
+        if (task.heapIndex >= 0) {
+            remove(task);
+        }
+        task.due = cycle + Math.max(1L, delay);
+        task.sequence = nextSequence++;
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        task.heapIndex = size;
+        heap[size++] = task;
+        siftUp(task.heapIndex);
     }
 
     @Override
     public void unschedule(ScheduledTask task) {
-        boolean removed = false;
-        for (ScheduleEntry e : entries) {
-            if (e.task == task) {
-                staleEntries.add(e);
-                removed = true;
+        if (task.heapIndex >= 0) {
+            remove(task);
+        }
+    }
+
+    private void remove(final ScheduledTask task) {
+        final int index = task.heapIndex;
+        task.heapIndex = -1;
+        final ScheduledTask last = heap[--size];
+        heap[size] = null;
+        if (last != task) {
+            heap[index] = last;
+            last.heapIndex = index;
+            siftDown(index);
+            siftUp(last.heapIndex);
+        }
+    }
+
+    private void siftUp(int index) {
+        final ScheduledTask task = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (!isBefore(task, heap[parent])) {
+                break;
             }
+            move(heap[parent], index);
+            index = parent;
         }
-        if (removed) {
-            removeStaleEntries();
+        move(task, index);
+    }
+
+    private void siftDown(int index) {
+        final ScheduledTask task = heap[index];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isBefore(heap[child], task)) {
+                break;
+            }
+            move(heap[child], index);
+            index = child;
         }
+        move(task, index);
+    }
+
+    private void move(final ScheduledTask task, final int index) {
+        heap[index] = task;
+        task.heapIndex = index;
+    }
+
+    // Tasks due on the same cycle run in the order they were scheduled
+    private static boolean isBefore(final ScheduledTask a, final ScheduledTask b) {
+        return (a.due < b.due) || (a.due == b.due && a.sequence < b.sequence);
     }
 }
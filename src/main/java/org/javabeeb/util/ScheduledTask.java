@@ -11,6 +11,11 @@ public class ScheduledTask {
     private final Scheduler scheduler;
     private final Runnable runnable;
 
+    // Maintained by DefaultScheduler
+    long due;
+    long sequence;
+    int heapIndex = -1;
+
     public ScheduledTask(final Scheduler scheduler, final Runnable runnable) {
         this.id = NEXT_ID.getAndIncrement();
         this.scheduler = Objects.requireNonNull(scheduler);
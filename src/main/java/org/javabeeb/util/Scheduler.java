@@ -6,4 +6,10 @@ public interface Scheduler extends ClockListener {
     ScheduledTask newTask(final Runnable runnable);
     void schedule(ScheduledTask task, final long delay);
     void unschedule(ScheduledTask task);
+
+    // Move time on by a number of cycles at once, running any tasks that fall due on the way
+    void advance(final long cycles);
+
+    // Long.MAX_VALUE when nothing is scheduled
+    long getCyclesUntilNextEvent();
 }
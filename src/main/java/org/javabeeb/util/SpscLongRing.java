@@ -0,0 +1,52 @@
+package org.javabeeb.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//
+// A fixed size queue of longs from one producer thread to one consumer thread, neither of which ever waits on a lock
+//
+public final class SpscLongRing {
+
+    private final long[] entries;
+    private final int mask;
+
+    // The index the producer will write next - only the producer changes it
+    private final AtomicLong tail = new AtomicLong();
+
+    // The index the consumer will read next - only the consumer changes it
+    private final AtomicLong head = new AtomicLong();
+
+    public SpscLongRing(final int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalStateException(capacity + ": capacity must be a power of two");
+        }
+        this.entries = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Producer only - false (and nothing added) if the ring is full
+    public boolean offer(final long value) {
+        final long t = tail.getPlain();
+        if (t - head.getAcquire() == entries.length) {
+            return false;
+        }
+        entries[(int) t & mask] = value;
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    // Consumer only
+    public boolean isEmpty() {
+        return head.getPlain() == tail.getAcquire();
+    }
+
+    // Consumer only - the oldest entry, which must exist
+    public long peek() {
+        return entries[(int) head.getPlain() & mask];
+    }
+
+    // Consumer only - removes the oldest entry, which must exist
+    public void pop() {
+        head.setRelease(head.getPlain() + 1);
+    }
+}
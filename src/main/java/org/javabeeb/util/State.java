@@ -1,11 +1,29 @@
 package org.javabeeb.util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+//
+// Written as a header - magic number, version, flags and the length of the body - followed by the body, which may be
+// deflated. The body is a count and then a key and TypedProperties for each entry.
+//
+// Files written before the header existed start with the entry count instead, and are still read.
+//
 public final class State {
 
+    private static final int MAGIC = 0x4A425354; // "JBST"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + 1;
+
+    private static final int FLAG_DEFLATED = 1;
+
     private final Map<String, TypedProperties> map = new HashMap<>();
 
     public void put(final String key, final TypedProperties value) {
@@ -17,30 +35,115 @@ public final class State {
     }
 
     public void write(final File file) throws IOException {
-        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
-            write(out);
+        write(file, true);
+    }
+
+    public void write(final File file, final boolean deflated) throws IOException {
+        final ByteBuffer body = ByteBuffer.allocate(getEncodedSize());
+        encode(body);
+        body.flip();
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).put((byte) (deflated ? FLAG_DEFLATED : 0)).putInt(body.limit());
+        header.flip();
+
+        final ByteBuffer[] buffers = {header, (deflated) ? deflate(body) : body};
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
         }
     }
 
     public static State read(final File file) throws IOException {
-        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
-            return read(in);
+        final ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buf = ByteBuffer.allocate((int) channel.size());
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // Keep reading
+            }
         }
+        buf.flip();
+
+        if (buf.remaining() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            return readLegacy(new DataInputStream(new ByteArrayInputStream(buf.array(), 0, buf.limit())));
+        }
+
+        buf.getInt();
+        final int version = buf.getInt();
+        if (version > VERSION) {
+            throw new IOException(file + ": state version " + version + " is newer than " + VERSION);
+        }
+        final int flags = buf.get();
+        final int length = buf.getInt();
+        final ByteBuffer body = ((flags & FLAG_DEFLATED) != 0) ? inflate(buf, length) : buf;
+
+        final State ret = new State();
+        final int size = body.getInt();
+        for (int i = 0; i < size; i++) {
+            ret.put(TypedProperties.decodeString(body), TypedProperties.decode(body));
+        }
+        return ret;
+    }
+
+    private int getEncodedSize() {
+        int size = Integer.BYTES;
+        for (Map.Entry<String, TypedProperties> e : map.entrySet()) {
+            size += TypedProperties.getEncodedSize(e.getKey()) + e.getValue().getEncodedSize();
+        }
+        return size;
     }
 
-    public void write(final DataOutput out) throws IOException {
-        out.writeInt(map.size());
+    private void encode(final ByteBuffer buf) {
+        buf.putInt(map.size());
         for (Map.Entry<String, TypedProperties> e : map.entrySet()) {
-            out.writeUTF(e.getKey());
-            e.getValue().write(out);
+            TypedProperties.encodeString(buf, e.getKey());
+            e.getValue().encode(buf);
+        }
+    }
+
+    // Speed matters more than size - memory mostly compresses well anyway
+    private static ByteBuffer deflate(final ByteBuffer in) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(in);
+            deflater.finish();
+            ByteBuffer out = ByteBuffer.allocate(Math.max(1024, in.remaining() / 2));
+            while (!deflater.finished()) {
+                if (!out.hasRemaining()) {
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                }
+                deflater.deflate(out);
+            }
+            return out.flip();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(final ByteBuffer in, final int length) throws IOException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in);
+            final ByteBuffer out = ByteBuffer.allocate(length);
+            while (out.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("state is truncated");
+                }
+            }
+            return out.flip();
+        } catch (DataFormatException ex) {
+            throw new IOException(ex);
+        } finally {
+            inflater.end();
         }
     }
 
-    public static State read(final DataInput in) throws IOException {
+    private static State readLegacy(final DataInput in) throws IOException {
         final State ret = new State();
         final int size = in.readInt();
         for (int i = 0; i < size; i++) {
-            ret.put(in.readUTF(), TypedProperties.read(in));
+            ret.put(in.readUTF(), TypedProperties.readLegacy(in));
         }
         return ret;
     }
@@ -0,0 +1,53 @@
+package org.javabeeb.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//
+// Hands values from one producer thread to one consumer thread without either ever waiting for the other. The
+// producer fills the back slot and publishes it, the consumer takes the most recently published one - anything
+// published in between is dropped.
+//
+public final class TripleBuffer<T> {
+
+    // Set in the middle index when it holds something the consumer hasn't taken yet
+    private static final int FRESH = 4;
+
+    private final Object[] slots = new Object[3];
+
+    // The only index both threads touch
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Producer only
+    private int back = 0;
+
+    // Consumer only
+    private int front = 2;
+
+    public TripleBuffer(final Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = Objects.requireNonNull(factory.get());
+        }
+    }
+
+    // The slot the producer is free to fill
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) slots[back];
+    }
+
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    // Null if nothing has been published since the last call
+    @SuppressWarnings("unchecked")
+    public T takeFront() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & ~FRESH;
+        return (T) slots[front];
+    }
+}
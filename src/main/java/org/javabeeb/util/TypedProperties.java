@@ -1,8 +1,9 @@
 package org.javabeeb.util;
 
 import java.io.DataInput;
-import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,47 +11,72 @@ import java.util.Objects;
 
 public class TypedProperties {
 
-    private final Map<String, String> map = new HashMap<>();
+    //
+    // The type tags of the binary format
+    //
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte STRING = 4;
+    private static final byte INT_ARRAY = 5;
+    private static final byte BYTE_ARRAY = 6;
+
+    // Integer, Long, Boolean, Double or String - always a String if read from the legacy format
+    private final Map<String, Object> map = new HashMap<>();
     private final Map<String, int[]> arrayMap = new HashMap<>();
+    private final Map<String, byte[]> byteArrayMap = new HashMap<>();
 
     public final void putString(final String key, final String value) {
-        map.put(Objects.requireNonNull(key), value);
+        map.put(Objects.requireNonNull(key), Objects.requireNonNull(value));
     }
 
     public final boolean containsKey(String key) {
-        return map.containsKey(key) || arrayMap.containsKey(key);
+        return map.containsKey(key) || arrayMap.containsKey(key) || byteArrayMap.containsKey(key);
     }
 
     public final void putBoolean(final String key, final boolean value) {
-        putString(key, Boolean.toString(value));
+        map.put(Objects.requireNonNull(key), value);
     }
 
     public final void putInt(final String key, final int value) {
-        putString(key, Integer.toString(value));
+        map.put(Objects.requireNonNull(key), value);
     }
 
     public final void putLong(final String key, final long value) {
-        putString(key, Long.toString(value));
+        map.put(Objects.requireNonNull(key), value);
     }
 
     public final void putDouble(final String key, final double value) {
-        putString(key, Double.toString(value));
+        map.put(Objects.requireNonNull(key), value);
     }
 
     public final void putIntArray(final String key, final int[] array) {
         arrayMap.put(key, Arrays.copyOf(array, array.length));
     }
 
+    public final void putByteArray(final String key, final byte[] array) {
+        byteArrayMap.put(key, Arrays.copyOf(array, array.length));
+    }
+
     public final String getString(final String key, final String defaultValue) {
-        return map.getOrDefault(Objects.requireNonNull(key), defaultValue);
+        final Object value = map.get(Objects.requireNonNull(key));
+        return (value == null) ? defaultValue : value.toString();
     }
 
     public final boolean getBoolean(final String key, final boolean defaultValue) {
-        final String b = getString(key, Boolean.toString(defaultValue));
-        return "true".equals(b);
+        final Object value = map.get(Objects.requireNonNull(key));
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return "true".equals(getString(key, Boolean.toString(defaultValue)));
     }
 
     public final int getInt(final String key, final int defaultValue) {
+        final Object value = map.get(Objects.requireNonNull(key));
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
         try {
             return Integer.parseInt(getString(key, "not a number"));
         } catch (Exception ex) {
@@ -59,6 +85,10 @@ public class TypedProperties {
     }
 
     public final long getLong(final String key, final long defaultValue) {
+        final Object value = map.get(Objects.requireNonNull(key));
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue();
+        }
         try {
             return Long.parseLong(getString(key, "not a number"));
         } catch (Exception ex) {
@@ -67,6 +97,10 @@ public class TypedProperties {
     }
 
     public final double getDouble(final String key, final double defaultValue) {
+        final Object value = map.get(Objects.requireNonNull(key));
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
         try {
             return Double.parseDouble(getString(key, "not a number"));
         } catch (Exception ex) {
@@ -79,22 +113,139 @@ public class TypedProperties {
         return Arrays.copyOf(arr, arr.length);
     }
 
-    public final void write(final DataOutput out) throws IOException {
-        out.writeInt(map.size());
+    // States written before byte arrays were supported hold them as int arrays
+    public final byte[] getByteArray(final String key) {
+        final byte[] arr = byteArrayMap.get(key);
+        if (arr != null) {
+            return Arrays.copyOf(arr, arr.length);
+        }
+        final int[] ints = arrayMap.get(key);
+        final byte[] ret = new byte[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ret[i] = (byte) ints[i];
+        }
+        return ret;
+    }
+
+    //
+    // The binary format - a count, then a key, type tag and value for each entry
+    //
 
-        for (Map.Entry<String, String> e : map.entrySet()) {
-            out.writeUTF(e.getKey());
-            out.writeUTF(e.getValue());
+    final int getEncodedSize() {
+        int size = Integer.BYTES;
+        for (Map.Entry<String, Object> e : map.entrySet()) {
+            size += getEncodedSize(e.getKey()) + 1;
+            final Object value = e.getValue();
+            if (value instanceof Integer) {
+                size += Integer.BYTES;
+            } else if (value instanceof Long) {
+                size += Long.BYTES;
+            } else if (value instanceof Boolean) {
+                size += 1;
+            } else if (value instanceof Double) {
+                size += Double.BYTES;
+            } else {
+                size += getEncodedSize(value.toString());
+            }
+        }
+        for (Map.Entry<String, int[]> e : arrayMap.entrySet()) {
+            size += getEncodedSize(e.getKey()) + 1 + Integer.BYTES + e.getValue().length * Integer.BYTES;
         }
+        for (Map.Entry<String, byte[]> e : byteArrayMap.entrySet()) {
+            size += getEncodedSize(e.getKey()) + 1 + Integer.BYTES + e.getValue().length;
+        }
+        return size;
+    }
 
-        out.writeInt(arrayMap.size());
+    final void encode(final ByteBuffer buf) {
+        buf.putInt(map.size() + arrayMap.size() + byteArrayMap.size());
+        for (Map.Entry<String, Object> e : map.entrySet()) {
+            encodeString(buf, e.getKey());
+            final Object value = e.getValue();
+            if (value instanceof Integer) {
+                buf.put(INT).putInt((Integer) value);
+            } else if (value instanceof Long) {
+                buf.put(LONG).putLong((Long) value);
+            } else if (value instanceof Boolean) {
+                buf.put(BOOLEAN).put((byte) (((Boolean) value) ? 1 : 0));
+            } else if (value instanceof Double) {
+                buf.put(DOUBLE).putDouble((Double) value);
+            } else {
+                buf.put(STRING);
+                encodeString(buf, value.toString());
+            }
+        }
         for (Map.Entry<String, int[]> e : arrayMap.entrySet()) {
-            out.writeUTF(e.getKey());
-            writeArray(out, e.getValue());
+            encodeString(buf, e.getKey());
+            buf.put(INT_ARRAY).putInt(e.getValue().length);
+            buf.asIntBuffer().put(e.getValue());
+            buf.position(buf.position() + e.getValue().length * Integer.BYTES);
         }
+        for (Map.Entry<String, byte[]> e : byteArrayMap.entrySet()) {
+            encodeString(buf, e.getKey());
+            buf.put(BYTE_ARRAY).putInt(e.getValue().length).put(e.getValue());
+        }
+    }
+
+    static TypedProperties decode(final ByteBuffer buf) throws IOException {
+        final TypedProperties ret = new TypedProperties();
+        final int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            final String key = decodeString(buf);
+            final byte type = buf.get();
+            switch (type) {
+                case INT:
+                    ret.map.put(key, buf.getInt());
+                    break;
+                case LONG:
+                    ret.map.put(key, buf.getLong());
+                    break;
+                case BOOLEAN:
+                    ret.map.put(key, buf.get() != 0);
+                    break;
+                case DOUBLE:
+                    ret.map.put(key, buf.getDouble());
+                    break;
+                case STRING:
+                    ret.map.put(key, decodeString(buf));
+                    break;
+                case INT_ARRAY: {
+                    final int[] array = new int[buf.getInt()];
+                    buf.asIntBuffer().get(array);
+                    buf.position(buf.position() + array.length * Integer.BYTES);
+                    ret.arrayMap.put(key, array);
+                    break;
+                }
+                case BYTE_ARRAY: {
+                    final byte[] array = new byte[buf.getInt()];
+                    buf.get(array);
+                    ret.byteArrayMap.put(key, array);
+                    break;
+                }
+                default:
+                    throw new IOException(key + ": unknown type " + type);
+            }
+        }
+        return ret;
     }
 
-    public static TypedProperties read(final DataInput in) throws IOException {
+    static int getEncodedSize(final String s) {
+        return Integer.BYTES + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static void encodeString(final ByteBuffer buf, final String s) {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length).put(bytes);
+    }
+
+    static String decodeString(final ByteBuffer buf) {
+        final byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The format written before the binary one, where everything but arrays is held as a string
+    static TypedProperties readLegacy(final DataInput in) throws IOException {
         final int mapSize = in.readInt();
         final TypedProperties ret = new TypedProperties();
         for (int i = 0; i < mapSize; i++) {
@@ -102,20 +253,22 @@ public class TypedProperties {
         }
         final int arrayMapSize = in.readInt();
         for (int i = 0; i < arrayMapSize; i++) {
-            ret.arrayMap.put(in.readUTF(), readArray(in));
+            final String key = in.readUTF();
+            final int length = in.readInt();
+            if (length < 0) {
+                // Byte arrays were written raw, flagged by a negative length
+                final byte[] array = new byte[-length];
+                in.readFully(array);
+                ret.byteArrayMap.put(key, array);
+            } else {
+                ret.arrayMap.put(key, readArray(in, length));
+            }
         }
         return ret;
     }
 
-    private static void writeArray(final DataOutput out, final int[] array) throws IOException {
-        out.writeInt(array.length);
-        for (int i : array) {
-            out.writeInt(i);
-        }
-    }
-
-    private static int[] readArray(final DataInput in) throws IOException {
-        final int[] array = new int[in.readInt()];
+    private static int[] readArray(final DataInput in, final int length) throws IOException {
+        final int[] array = new int[length];
         for (int i = 0; i < array.length; i++) {
             array[i] = in.readInt();
         }
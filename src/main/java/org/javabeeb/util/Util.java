@@ -69,7 +69,7 @@ public final class Util {
     public static int asl(final Cpu cpu, final int a) {
         final boolean carryOut = (a & 0x80) != 0;
         final int result = (a << 1) & 0xFF;
-        cpu.setFlag(Flag.CARRY, carryOut);
+        cpu.setCarry(carryOut);
         cpu.maintainNZ(result);
         return result;
     }
@@ -77,7 +77,7 @@ public final class Util {
     public static int lsr(final Cpu cpu, final int a) {
         final boolean carryOut = (a & 1) != 0;
         final int result = (a >>> 1) & 0xFF;
-        cpu.setFlag(Flag.CARRY, carryOut);
+        cpu.setCarry(carryOut);
         cpu.maintainNZ(result);
         return result;
     }
@@ -86,7 +86,7 @@ public final class Util {
         final boolean carryOut = (a & 0x80) != 0;
         final int carry = (carryIn) ? 1 : 0;
         final int result = ((a << 1) & 0xFF) | carry;
-        cpu.setFlag(Flag.CARRY, carryOut);
+        cpu.setCarry(carryOut);
         cpu.maintainNZ(result);
         return result;
     }
@@ -95,7 +95,7 @@ public final class Util {
         final boolean carrtOut = (a & 1) != 0;
         final int carry = (carryIn) ? 0x80 : 0;
         final int result = ((a >>> 1) & 0xFF) | carry;
-        cpu.setFlag(Flag.CARRY, carrtOut);
+        cpu.setCarry(carrtOut);
         cpu.maintainNZ(result);
         return result;
     }
@@ -120,8 +120,8 @@ public final class Util {
         checkUnsignedByte(a);
         checkUnsignedByte(b);
         int result = a + b + (carryIn ? 1 : 0);
-        cpu.setFlag(Flag.CARRY, (result & 0x100) != 0);
-        cpu.setFlag(Flag.OVERFLOW, ((a ^ result) & (b ^ result) & 0x80) != 0);
+        cpu.setCarry((result & 0x100) != 0);
+        cpu.setOverflowResult((a ^ result) & (b ^ result));
         return result & 0xFF;
     }
 
@@ -173,10 +173,8 @@ public final class Util {
     }
 
     public static void cmp(final Cpu cpu, final int register, final int value) {
-        final int result = (register - value) & 0xFF;
-        cpu.setFlag(Flag.ZERO, result == 0);
-        cpu.setFlag(Flag.NEGATIVE, (result & 0x80) != 0);
-        cpu.setFlag(Flag.CARRY, register >= value);
+        cpu.maintainNZ((register - value) & 0xFF);
+        cpu.setCarry(register >= value);
     }
 
     public static Cpu createCpu(final int codeStart, final String... statements) {
@@ -304,6 +302,8 @@ public final class Util {
                     typedMap.putBoolean(key, (boolean) value);
                 } else if (type == int[].class) {
                     typedMap.putIntArray(key, (int[]) value);
+                } else if (type == byte[].class) {
+                    typedMap.putByteArray(key, (byte[]) value);
                 } else if (type == double.class) {
                     typedMap.putDouble(key, (double) value);
                 } else if (type == String.class) {
@@ -353,6 +353,15 @@ public final class Util {
                             f.set(obj, typedMap.getString(fieldKey, ""));
                         } else if (type == int[].class) {
                             f.set(obj, typedMap.getIntArray(fieldKey));
+                        } else if (type == byte[].class) {
+                            // Copy into the existing array, which others (e.g. a PageTable) may hold on to
+                            final byte[] current = (byte[]) f.get(obj);
+                            final byte[] restored = typedMap.getByteArray(fieldKey);
+                            if (current != null && current.length == restored.length) {
+                                System.arraycopy(restored, 0, current, 0, current.length);
+                            } else {
+                                f.set(obj, restored);
+                            }
                         }
                     }
                 }
@@ -459,20 +468,6 @@ public final class Util {
         }
     }
 
-    public static int[] resizeArray(final int[] array, final int size) {
-        final int[] ret = new int[size];
-        System.arraycopy(array, 0, ret, 0, Math.min(array.length, size));
-        return ret;
-    }
-
-    public static int[] toIntArray(final byte[] bytes, final int size) {
-        final int[] ret = new int[size];
-        for (int i = 0; i < size; i++) {
-            ret[i] = (i < bytes.length) ? ((int) bytes[i]) & 0xFF : 0;
-        }
-        return ret;
-    }
-
     public static boolean isPrintableCharacter(final char c) {
         return (c >= 32 && c <= 127);
     }
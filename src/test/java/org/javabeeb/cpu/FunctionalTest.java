@@ -14,15 +14,27 @@ class FunctionalTest {
 
     @Test
     void functionalTests() throws Exception {
+        runFunctionalTests(ExecutionMode.CYCLE_ACCURATE);
+    }
+
+    // Executing whole instructions must take exactly as many cycles as executing them a cycle at a time
+    @Test
+    void functionalTestsInstructionGranular() throws Exception {
+        final long instructionCycles = runFunctionalTests(ExecutionMode.INSTRUCTION);
+        assertThat(instructionCycles).isEqualTo(runFunctionalTests(ExecutionMode.CYCLE_ACCURATE));
+    }
+
+    // Returns the number of cycles taken
+    private long runFunctionalTests(final ExecutionMode executionMode) throws Exception {
         final AbstractMemory memory = new RandomAccessMemory(0, 65536);
         MemoryUtils.loadS19(memory, getClass().getResourceAsStream("/6502_functional_test.s19"), 0);
         memory.addModifyWatch(0x200, v -> {});
         final Cpu cpu = new Cpu(new SystemStatus(), new DefaultScheduler(), memory);
+        cpu.setExecutionMode(executionMode);
         cpu.setHaltIfPCLoop(true);
         cpu.setPC(0x400);
         cpu.run();
         assertThat(memory.readByte(0x200)).isEqualTo(0xF0);
+        return cpu.getCycleCount();
     }
-
-
 }
@@ -0,0 +1,170 @@
+package org.javabeeb.cpu;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+//
+// N, Z, C and V are only worked out when something reads them - these check they come out right wherever they are
+// read, in both the cycle accurate and the instruction granular cores
+//
+class LazyFlagsTest {
+
+    private static final int RESULT = 0x2000;
+    private static final int IRQ_LINE = 0x2100;
+    private static final int IRQ_HANDLER = 0x3000;
+
+    private static final ExecutionMode[] MODES = {ExecutionMode.CYCLE_ACCURATE, ExecutionMode.INSTRUCTION};
+
+    @Test
+    void phpPushesFlagsOfLastResult() {
+        for (ExecutionMode mode : MODES) {
+            // 0x7F + 0x01 = 0x80 - N and V set, Z and C clear, I still set from reset
+            final TestContext context = run(mode, "CLC", "LDA #$7F", "ADC #$01", "PHP", "PLA", "STA $2000");
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0xF4);
+        }
+    }
+
+    @Test
+    void phpPushesCarryAndZeroFromDifferentResults() {
+        for (ExecutionMode mode : MODES) {
+            // CMP sets C, then LDX sets Z without touching C
+            final TestContext context = run(mode, "LDA #$10", "CMP #$01", "LDX #$00", "PHP", "PLA", "STA $2000");
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0x37);
+        }
+    }
+
+    @Test
+    void plpRestoresFlagsNoSingleResultCouldSet() {
+        for (ExecutionMode mode : MODES) {
+            // N and Z both set
+            TestContext context = run(mode, "LDA #$C3", "PHA", "PLP");
+            assertThat(context.isFlagSet(Flag.NEGATIVE)).isTrue();
+            assertThat(context.isFlagSet(Flag.ZERO)).isTrue();
+            assertThat(context.isFlagSet(Flag.CARRY)).isTrue();
+            assertThat(context.isFlagSet(Flag.OVERFLOW)).isTrue();
+            assertThat(context.isFlagSet(Flag.INTERRUPT)).isFalse();
+
+            context = run(mode, "LDA #$C3", "PHA", "PLP", "PHP", "PLA", "STA $2000");
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0xF3);
+        }
+    }
+
+    @Test
+    void branchesSeeFlagsRestoredByPlp() {
+        for (ExecutionMode mode : MODES) {
+            // Each branch skips a HLT - code starts at $1000
+            final TestContext context = run(mode,
+                    "LDA #$C3", "PHA", "PLP",
+                    "BEQ $1007", "HLT",
+                    "BMI $100A", "HLT",
+                    "BCS $100D", "HLT",
+                    "BVS $1010", "HLT",
+                    "LDA #$01", "STA $2000"
+            );
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0x01);
+        }
+    }
+
+    @Test
+    void bitTakesNAndVFromMemoryAndZFromAnd() {
+        for (ExecutionMode mode : MODES) {
+            TestContext context = create(mode, "LDA #$01", "BIT $2001");
+            context.writeByte(RESULT + 1, 0xC0);
+            context.run();
+            assertThat(context.isFlagSet(Flag.NEGATIVE)).isTrue();
+            assertThat(context.isFlagSet(Flag.OVERFLOW)).isTrue();
+            assertThat(context.isFlagSet(Flag.ZERO)).isTrue();
+
+            context = create(mode, "SEC", "LDA #$40", "BIT $2001", "PHP", "PLA", "STA $2000");
+            context.writeByte(RESULT + 1, 0x40);
+            context.run();
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0x75);
+        }
+    }
+
+    @Test
+    void decimalAdc() {
+        for (ExecutionMode mode : MODES) {
+            TestContext context = run(mode, "SED", "CLC", "LDA #$58", "ADC #$46");
+            assertThat(context.getA()).isEqualTo(0x04);
+            assertThat(context.isFlagSet(Flag.CARRY)).isTrue();
+
+            context = run(mode, "SED", "SEC", "LDA #$12", "ADC #$34");
+            assertThat(context.getA()).isEqualTo(0x47);
+            assertThat(context.isFlagSet(Flag.CARRY)).isFalse();
+
+            // The carry out must survive into PHP
+            context = run(mode, "SED", "CLC", "LDA #$99", "ADC #$01", "PHP", "PLA", "STA $2000");
+            assertThat(context.getMemory().readByte(RESULT) & 0x09).isEqualTo(0x09);
+        }
+    }
+
+    @Test
+    void decimalSbc() {
+        for (ExecutionMode mode : MODES) {
+            TestContext context = run(mode, "SED", "SEC", "LDA #$46", "SBC #$12");
+            assertThat(context.getA()).isEqualTo(0x34);
+            assertThat(context.isFlagSet(Flag.CARRY)).isTrue();
+
+            context = run(mode, "SED", "SEC", "LDA #$12", "SBC #$21");
+            assertThat(context.getA()).isEqualTo(0x91);
+            assertThat(context.isFlagSet(Flag.CARRY)).isFalse();
+
+            context = run(mode, "SED", "CLC", "LDA #$40", "SBC #$13");
+            assertThat(context.getA()).isEqualTo(0x26);
+            assertThat(context.isFlagSet(Flag.CARRY)).isTrue();
+        }
+    }
+
+    @Test
+    void irqPushesAndRtiRestoresFlags() {
+        for (ExecutionMode mode : MODES) {
+            final TestContext context = create(mode, "SEC", "LDA #$80", "STA $2100", "CLI", "NOP", "NOP");
+            final Cpu cpu = context.getCpu();
+            cpu.setInterruptSource(() -> context.getMemory().readByte(IRQ_LINE) != 0);
+            context.writeWord(0xFFFE, IRQ_HANDLER);
+            // PLA, PHA, STA $2000, LDA #0, STA $2100, RTI
+            final int[] handler = {0x68, 0x48, 0x8D, 0x00, 0x20, 0xA9, 0x00, 0x8D, 0x00, 0x21, 0x40};
+            for (int i = 0; i < handler.length; i++) {
+                context.writeByte(IRQ_HANDLER + i, handler[i]);
+            }
+            context.run();
+
+            // N and C from before the interrupt, B clear, I clear as it was when taken
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0xA1);
+
+            // RTI brings back the flags the handler's LDA #0 changed
+            assertThat(context.isFlagSet(Flag.NEGATIVE)).isTrue();
+            assertThat(context.isFlagSet(Flag.ZERO)).isFalse();
+            assertThat(context.isFlagSet(Flag.CARRY)).isTrue();
+        }
+    }
+
+    @Test
+    void brkPushesFlagsWithBreakSet() {
+        for (ExecutionMode mode : MODES) {
+            final TestContext context = create(mode, "CLC", "LDA #$00", "BRK", "NOP");
+            context.writeWord(0xFFFE, IRQ_HANDLER);
+            // PLA, STA $2000, HLT
+            final int[] handler = {0x68, 0x8D, 0x00, 0x20, 0x02};
+            for (int i = 0; i < handler.length; i++) {
+                context.writeByte(IRQ_HANDLER + i, handler[i]);
+            }
+            context.run();
+
+            // Z from LDA #0, I set by reset, B and R set
+            assertThat(context.getMemory().readByte(RESULT)).isEqualTo(0x36);
+        }
+    }
+
+    private static TestContext create(final ExecutionMode mode, final String... statements) {
+        final TestContext context = TestContext.create(statements);
+        context.getCpu().setExecutionMode(mode);
+        return context;
+    }
+
+    private static TestContext run(final ExecutionMode mode, final String... statements) {
+        return create(mode, statements).run();
+    }
+}
@@ -0,0 +1,229 @@
+package org.javabeeb.device;
+
+import org.javabeeb.clock.ClockDefinition;
+import org.javabeeb.clock.DeviceClock;
+import org.javabeeb.util.SystemStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+//
+// The timers are brought up to date in one go rather than ticked - these run a VIA that way alongside one that is
+// stepped a cycle at a time, as the timers used to be, and check they never disagree
+//
+class VIATimerTest {
+
+    private static final int T1CL = 0x4;
+    private static final int T1CH = 0x5;
+    private static final int T1LH = 0x7;
+    private static final int T2CL = 0x8;
+    private static final int T2CH = 0x9;
+    private static final int ACR = 0xb;
+    private static final int IFR = 0xd;
+    private static final int IER = 0xe;
+
+    private final DeviceClock lazyClock = new DeviceClock();
+    private final VIA lazy = new VIA(new SystemStatus(), lazyClock, "lazy", 0, 16);
+
+    // Its device clock never moves, so it only changes when stepped
+    private final VIA stepped = new VIA(new SystemStatus(), new DeviceClock(), "stepped", 0, 16);
+
+    private final Random random = new Random(1970L);
+
+    @Test
+    void oneShotTimer1HitsOnce() {
+        write(IER, 0xC0);
+        write(T1CL, 0x10);
+        write(T1CH, 0x00);
+        run(200, 7);
+        assertThat(stepped.isIRQ()).isTrue();
+        assertThat(stepped.t1hit).isTrue();
+
+        // Clearing the interrupt doesn't bring it back
+        write(IFR, 0x40);
+        run(1000, 97);
+        assertThat(stepped.isIRQ()).isFalse();
+
+        // Until the counter is written again
+        write(T1CH, 0x01);
+        run(1000, 31);
+        assertThat(stepped.isIRQ()).isTrue();
+    }
+
+    @Test
+    void freeRunningTimer1HitsEveryPeriod() {
+        write(ACR, 0xC0);
+        write(IER, 0xC0);
+        write(T1CL, 0x05);
+        write(T1CH, 0x00);
+        int hits = 0;
+        for (int i = 0; i < 200; i++) {
+            hits += runUntilIRQ(100);
+            write(IFR, 0x40);
+        }
+        assertThat(hits).isEqualTo(200);
+        assertThat(stepped.t1hit).isFalse();
+
+        // Long gaps between looks span many periods
+        run(50_000, 4_000);
+    }
+
+    @Test
+    void freeRunningTimer1LatchChangeTakesEffectOnReload() {
+        write(ACR, 0x40);
+        write(IER, 0xC0);
+        write(T1CL, 0x20);
+        write(T1CH, 0x00);
+        for (int i = 0; i < 50; i++) {
+            run(random.nextInt(300), 1 + random.nextInt(50));
+            write(T1CL, random.nextInt(0x40));
+            write(T1LH, 0x00);
+            write(IFR, 0x40);
+        }
+    }
+
+    @Test
+    void timer2HitsOnceAndThenWraps() {
+        write(IER, 0xA0);
+        write(T2CL, 0x40);
+        write(T2CH, 0x00);
+        runUntilIRQ(200);
+        write(IFR, 0x20);
+
+        // Keeps counting down through the wrap without interrupting again
+        run(0x30000, 10_007);
+        assertThat(stepped.isIRQ()).isFalse();
+        assertThat(stepped.t2hit).isTrue();
+
+        write(T2CH, 0x00);
+        runUntilIRQ(200);
+    }
+
+    @Test
+    void timer2DoesNotCountCyclesWhileCountingPulses() {
+        write(IER, 0xA0);
+        write(ACR, 0x20);
+        write(T2CL, 0x08);
+        write(T2CH, 0x00);
+        final int t2c = stepped.t2c;
+        run(5000, 101);
+        assertThat(stepped.t2c).isEqualTo(t2c);
+        assertThat(stepped.isIRQ()).isFalse();
+
+        // Back to counting cycles from where it stopped
+        write(ACR, 0x00);
+        runUntilIRQ(100);
+    }
+
+    @Test
+    void bothTimersAtOnce() {
+        write(ACR, 0x40);
+        write(IER, 0xE0);
+        write(T1CL, 0x11);
+        write(T1CH, 0x00);
+        write(T2CL, 0x33);
+        write(T2CH, 0x00);
+        for (int i = 0; i < 100; i++) {
+            run(random.nextInt(500), 1 + random.nextInt(200));
+            write(IFR, 0x60);
+            if ((i % 10) == 0) {
+                write(T2CH, 0x00);
+            }
+        }
+    }
+
+    private void write(final int register, final int value) {
+        lazy.writeRegister(register, value);
+        stepped.writeRegister(register, value);
+        assertSame();
+    }
+
+    // Checks the interrupt line every cycle, and the whole of the timer state every so often
+    private void run(final int cycles, final int lookEvery) {
+        for (int i = 1; i <= cycles; i++) {
+            cycle();
+            if ((i % lookEvery) == 0) {
+                assertSame();
+            }
+        }
+        assertSame();
+    }
+
+    // Stops a cycle after the interrupt, as clearing it on the cycle it was raised has no effect
+    private int runUntilIRQ(final int limit) {
+        for (int i = 0; i < limit; i++) {
+            cycle();
+            if (stepped.isIRQ()) {
+                assertSame();
+                cycle();
+                assertSame();
+                return 1;
+            }
+        }
+        throw new AssertionError("no interrupt within " + limit + " cycles");
+    }
+
+    private void cycle() {
+        lazyClock.tick(ClockDefinition.CR200, 0L);
+        step(stepped);
+        // Only the scheduled timer task can have brought the lazy VIA up to date
+        assertThat(lazy.isIRQ()).isEqualTo(stepped.isIRQ());
+    }
+
+    private void assertSame() {
+        lazy.synchronise();
+        assertThat(lazy.t1c).isEqualTo(stepped.t1c);
+        assertThat(lazy.t2c).isEqualTo(stepped.t2c);
+        assertThat(lazy.ifr).isEqualTo(stepped.ifr);
+        assertThat(lazy.t1hit).isEqualTo(stepped.t1hit);
+        assertThat(lazy.t2hit).isEqualTo(stepped.t2hit);
+        assertThat(lazy.t1_pb7).isEqualTo(stepped.t1_pb7);
+        assertThat(lazy.justhit).isEqualTo(stepped.justhit);
+    }
+
+    // One cycle of the timers as they were when they were ticked
+    private static void step(final VIA via) {
+        via.justhit = 0;
+        final int newT1c = via.t1c - 1;
+        if (newT1c < -2 && via.t1c > -3) {
+            if (!via.t1hit) {
+                via.ifr |= 0x40;
+                updateIFR(via);
+                if (newT1c == -3) {
+                    via.justhit |= 1;
+                }
+                via.t1_pb7 ^= 1;
+            }
+            if ((via.acr & 0x40) == 0) {
+                via.t1hit = true;
+            }
+        }
+        via.t1c = (newT1c < -3) ? newT1c + via.t1l + 4 : newT1c;
+
+        if ((via.acr & 0x20) == 0) {
+            int newT2c = via.t2c - 1;
+            if (newT2c < -2) {
+                if (!via.t2hit) {
+                    via.ifr |= 0x20;
+                    updateIFR(via);
+                    if (newT2c == -3) {
+                        via.justhit |= 2;
+                    }
+                    via.t2hit = true;
+                }
+                newT2c += 0x20000;
+            }
+            via.t2c = newT2c;
+        }
+    }
+
+    private static void updateIFR(final VIA via) {
+        if ((via.ifr & via.ier & 0x7f) != 0) {
+            via.ifr |= 0x80;
+        } else {
+            via.ifr &= ~0x80;
+        }
+    }
+}
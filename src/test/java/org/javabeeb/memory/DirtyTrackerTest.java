@@ -0,0 +1,176 @@
+package org.javabeeb.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class DirtyTrackerTest {
+
+    private final RandomAccessMemory ram = new RandomAccessMemory(0, 0x8000);
+
+    @Test
+    void firstSnapshotReportsEverything() {
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            final DirtyPages pages = tracker.snapshot();
+            assertThat(pages.getEpoch()).isEqualTo(1L);
+            assertThat(pages.isPageDirty(0x0000)).isTrue();
+            assertThat(pages.isPageDirty(0x7FFF)).isTrue();
+        }
+    }
+
+    @Test
+    void snapshotReportsWritesSinceThePreviousOne() {
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            tracker.snapshot();
+            assertThat(tracker.snapshot().isEmpty()).isTrue();
+
+            ram.writeByte(0x1234, 0x55);
+            final DirtyPages pages = tracker.snapshot();
+            assertThat(pages.getEpoch()).isEqualTo(3L);
+            assertThat(pages.isEmpty()).isFalse();
+            assertThat(pages.isBlockDirty(0x1234)).isTrue();
+
+            // Taking the snapshot clears it
+            assertThat(tracker.snapshot().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void blocksRollUpIntoPages() {
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            tracker.snapshot();
+            ram.writeByte(0x1240, 0x01);
+            ram.writeByte(0x137F, 0x01);
+            final DirtyPages pages = tracker.snapshot();
+
+            // Each write dirties the whole of its 64 byte block and nothing else
+            assertThat(pages.isBlockDirty(0x1240)).isTrue();
+            assertThat(pages.isBlockDirty(0x127F)).isTrue();
+            assertThat(pages.isBlockDirty(0x123F)).isFalse();
+            assertThat(pages.isBlockDirty(0x1280)).isFalse();
+            assertThat(pages.isBlockDirty(0x1340)).isTrue();
+            assertThat(pages.isBlockDirty(0x1300)).isFalse();
+
+            assertThat(pages.isPageDirty(0x1200)).isTrue();
+            assertThat(pages.isPageDirty(0x12FF)).isTrue();
+            assertThat(pages.isPageDirty(0x1300)).isTrue();
+            assertThat(pages.isPageDirty(0x1100)).isFalse();
+            assertThat(pages.isPageDirty(0x1400)).isFalse();
+        }
+    }
+
+    @Test
+    void markAllDirtyReachesEveryTracker() {
+        try (DirtyTracker first = ram.newDirtyTracker(); DirtyTracker second = ram.newDirtyTracker()) {
+            first.snapshot();
+            second.snapshot();
+            ram.markAllDirty();
+            for (DirtyTracker tracker : List.of(first, second)) {
+                final DirtyPages pages = tracker.snapshot();
+                for (int address = 0; address < 0x8000; address += 0x40) {
+                    assertThat(pages.isBlockDirty(address)).isTrue();
+                }
+                assertThat(tracker.snapshot().isEmpty()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void trackersDrainIndependently() {
+        try (DirtyTracker first = ram.newDirtyTracker(); DirtyTracker second = ram.newDirtyTracker()) {
+            first.snapshot();
+            second.snapshot();
+            ram.writeByte(0x2000, 0x01);
+            assertThat(first.snapshot().isPageDirty(0x2000)).isTrue();
+
+            ram.writeByte(0x3000, 0x01);
+            final DirtyPages pages = second.snapshot();
+            assertThat(pages.isPageDirty(0x2000)).isTrue();
+            assertThat(pages.isPageDirty(0x3000)).isTrue();
+            assertThat(first.snapshot().isPageDirty(0x2000)).isFalse();
+        }
+    }
+
+    @Test
+    void writesAreOnlyTrackedWhileATrackerIsOpen() {
+        final DirtyTracker tracker = ram.newDirtyTracker();
+        assertThat(ram.getDirtyBitmap()).isNotNull();
+        tracker.close();
+        assertThat(ram.getDirtyBitmap()).isNull();
+    }
+
+    @Test
+    void pageTableTracksWritesOnceRemappedByTheCpu() {
+        final CompoundMemory memory = new CompoundMemory(List.of(ram));
+        final PageTable pageTable = memory.getPageTable();
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            tracker.snapshot();
+            pageTable.remapIfRequested();
+            assertThat(pageTable.writeByte(0x1000, 0x42)).isTrue();
+            assertThat(ram.readByte(0x1000)).isEqualTo(0x42);
+            assertThat(tracker.snapshot().isBlockDirty(0x1000)).isTrue();
+        }
+        pageTable.remapIfRequested();
+        assertThat(pageTable.writeByte(0x1000, 0x43)).isTrue();
+        assertThat(ram.readByte(0x1000)).isEqualTo(0x43);
+    }
+
+    @Test
+    void snapshotsReportEverythingUntilTheCpuRemaps() {
+        final CompoundMemory memory = new CompoundMemory(List.of(ram));
+        final PageTable pageTable = memory.getPageTable();
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            tracker.snapshot();
+            // Still written straight to the array, without being marked
+            assertThat(pageTable.writeByte(0x1000, 0x42)).isTrue();
+            assertThat(tracker.snapshot().isPageDirty(0x1000)).isTrue();
+
+            pageTable.remapIfRequested();
+            assertThat(pageTable.writeByte(0x1100, 0x42)).isTrue();
+            assertThat(tracker.snapshot().isPageDirty(0x1100)).isTrue();
+
+            // Only now has every snapshot since the remap been taken from the bitmap the CPU is marking
+            assertThat(pageTable.writeByte(0x3000, 0x42)).isTrue();
+            final DirtyPages pages = tracker.snapshot();
+            assertThat(pages.isPageDirty(0x3000)).isTrue();
+            assertThat(pages.isPageDirty(0x1000)).isFalse();
+            assertThat(tracker.snapshot().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void reopenedTrackerReportsEverythingUntilTheCpuRemaps() {
+        final CompoundMemory memory = new CompoundMemory(List.of(ram));
+        final PageTable pageTable = memory.getPageTable();
+        final DirtyTracker first = ram.newDirtyTracker();
+        pageTable.remapIfRequested();
+        first.close();
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            tracker.snapshot();
+            // Still marking the bitmap of the tracker opened first
+            assertThat(pageTable.writeByte(0x2000, 0x42)).isTrue();
+            pageTable.remapIfRequested();
+            assertThat(tracker.snapshot().isPageDirty(0x2000)).isTrue();
+            assertThat(tracker.snapshot().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void remapKeepsWatchedPagesGoingThroughTheMemory() {
+        final CompoundMemory memory = new CompoundMemory(List.of(ram));
+        final PageTable pageTable = memory.getPageTable();
+        final int[] written = {-1};
+        memory.watchPage(0x2000, page -> written[0] = page);
+        try (DirtyTracker tracker = ram.newDirtyTracker()) {
+            tracker.snapshot();
+            pageTable.remapIfRequested();
+            assertThat(pageTable.writeByte(0x2010, 0x01)).isFalse();
+
+            memory.writeByte(0x2010, 0x01);
+            assertThat(written[0]).isEqualTo(0x20);
+            assertThat(tracker.snapshot().isBlockDirty(0x2010)).isTrue();
+        }
+    }
+}
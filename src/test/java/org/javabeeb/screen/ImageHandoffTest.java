@@ -0,0 +1,70 @@
+package org.javabeeb.screen;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class ImageHandoffTest {
+
+    private final ImageHandoff handoff = new ImageHandoff(8, 8);
+
+    @Test
+    void consumerTakesTheLatestImage() {
+        BufferedImage painting = handoff.acquire();
+        painting = handoff.publish(painting, new Point(1, 2));
+        final BufferedImage second = painting;
+        painting = handoff.publish(painting, null);
+
+        assertThat(handoff.takeLatest()).isTrue();
+        assertThat(handoff.getImage()).isSameAs(second);
+        assertThat(handoff.getImageOrigin()).isNull();
+        assertThat(handoff.takeLatest()).isFalse();
+        assertThat(handoff.getImage()).isSameAs(second);
+        assertThat(painting).isNotSameAs(second);
+    }
+
+    @Test
+    void imagesFromAnEarlierGenerationAreDropped() {
+        final BufferedImage rendering = handoff.acquire();
+        final long renderingGeneration = handoff.getGeneration();
+
+        // The renderer is switched while the render thread is still drawing
+        handoff.newGeneration();
+        BufferedImage painting = handoff.acquire();
+        final BufferedImage first = painting;
+        painting = handoff.publish(painting, null);
+
+        assertThat(handoff.publish(rendering, new Point(1, 2), renderingGeneration)).isSameAs(rendering);
+        assertThat(handoff.takeLatest()).isTrue();
+        assertThat(handoff.getImage()).isSameAs(first);
+        assertThat(handoff.takeLatest()).isFalse();
+
+        // Images for the current generation still go through
+        final BufferedImage second = painting;
+        handoff.publish(painting, null, handoff.getGeneration());
+        assertThat(handoff.takeLatest()).isTrue();
+        assertThat(handoff.getImage()).isSameAs(second);
+    }
+
+    @Test
+    void imageBeingShownIsNeverPaintedOn() {
+        final Random random = new Random(6845L);
+        final BufferedImage[] painting = {handoff.acquire(), handoff.acquire()};
+        for (int i = 0; i < 10_000; i++) {
+            final int painter = random.nextInt(2);
+            if (random.nextBoolean()) {
+                painting[painter] = handoff.publish(painting[painter], null);
+            } else {
+                handoff.takeLatest();
+            }
+            final BufferedImage shown = handoff.getImage();
+            assertThat(painting[0]).isNotSameAs(shown);
+            assertThat(painting[1]).isNotSameAs(shown);
+            assertThat(painting[0]).isNotSameAs(painting[1]);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.javabeeb.sound;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WavFileAudioSinkTest {
+
+    private static final int HEADER_SIZE = 44;
+
+    @Test
+    void headerSizesAreFilledInOnClose() throws Exception {
+        final Path path = Files.createTempFile("javabeeb", ".wav");
+        try {
+            // More than one of the sink's buffers, written in pieces of different sizes
+            final int sampleCount = 50_000;
+            final byte[] samples = new byte[sampleCount * AudioSink.BYTES_PER_SAMPLE];
+            for (int i = 0; i < sampleCount; i++) {
+                final short sample = (short) (i * 31);
+                samples[i * 2] = (byte) (sample >> 8);
+                samples[i * 2 + 1] = (byte) sample;
+            }
+            final WavFileAudioSink sink = new WavFileAudioSink(path);
+            assertThat(sink.isRealTime()).isFalse();
+            int offset = 0;
+            for (int length = 2; offset < samples.length; length = (length * 3) % 2000 + 2) {
+                final int n = Math.min(length, samples.length - offset);
+                sink.write(samples, offset, n);
+                offset += n;
+            }
+            sink.close();
+            sink.close();
+
+            final ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            final int dataLength = samples.length;
+            assertThat(file.limit()).isEqualTo(HEADER_SIZE + dataLength);
+            assertThat(chunkId(file, 0)).isEqualTo("RIFF");
+            assertThat(file.getInt(4)).isEqualTo(HEADER_SIZE - 8 + dataLength);
+            assertThat(chunkId(file, 8)).isEqualTo("WAVE");
+            assertThat(chunkId(file, 12)).isEqualTo("fmt ");
+            assertThat(file.getInt(16)).isEqualTo(16);
+            assertThat(file.getShort(20)).isEqualTo((short) 1);
+            assertThat(file.getShort(22)).isEqualTo((short) 1);
+            assertThat(file.getInt(24)).isEqualTo(AudioSink.SAMPLE_RATE);
+            assertThat(file.getInt(28)).isEqualTo(AudioSink.SAMPLE_RATE * AudioSink.BYTES_PER_SAMPLE);
+            assertThat(file.getShort(32)).isEqualTo((short) AudioSink.BYTES_PER_SAMPLE);
+            assertThat(file.getShort(34)).isEqualTo((short) 16);
+            assertThat(chunkId(file, 36)).isEqualTo("data");
+            assertThat(file.getInt(40)).isEqualTo(dataLength);
+
+            // Samples come out little-endian
+            for (int i = 0; i < sampleCount; i++) {
+                assertThat(file.getShort(HEADER_SIZE + i * 2)).isEqualTo((short) (i * 31));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void emptyStreamHasEmptyDataChunk() throws Exception {
+        final Path path = Files.createTempFile("javabeeb", ".wav");
+        try {
+            new WavFileAudioSink(path).close();
+            final ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            assertThat(file.limit()).isEqualTo(HEADER_SIZE);
+            assertThat(file.getInt(4)).isEqualTo(HEADER_SIZE - 8);
+            assertThat(file.getInt(40)).isEqualTo(0);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void writingAfterCloseFails() throws Exception {
+        final Path path = Files.createTempFile("javabeeb", ".wav");
+        try {
+            final WavFileAudioSink sink = new WavFileAudioSink(path);
+            sink.close();
+            assertThrows(IllegalStateException.class, () -> sink.write(new byte[2], 0, 2));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static String chunkId(final ByteBuffer buf, final int offset) {
+        final byte[] id = new byte[4];
+        buf.get(offset, id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,146 @@
+package org.javabeeb.util;
+
+import org.javabeeb.clock.ClockDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DefaultSchedulerTest {
+
+    private final DefaultScheduler scheduler = new DefaultScheduler();
+
+    // Each entry is the task's number and the cycle it ran on
+    private final List<long[]> runs = new ArrayList<>();
+
+    private ScheduledTask newTask(final int number) {
+        return scheduler.newTask(() -> runs.add(new long[]{number, scheduler.getCycle()}));
+    }
+
+    private void tick(final int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.tick(ClockDefinition.CR200, 0L);
+        }
+    }
+
+    @Test
+    void tasksRunInDueOrderWithTiesInScheduleOrder() {
+        final Random random = new Random(1234L);
+        final int count = 500;
+        final long[] due = new long[count];
+        for (int i = 0; i < count; i++) {
+            due[i] = 1 + random.nextInt(100);
+            newTask(i).schedule(due[i]);
+        }
+        tick(100);
+
+        assertThat(runs.size()).isEqualTo(count);
+        for (int i = 0; i < count; i++) {
+            final long[] run = runs.get(i);
+            assertThat(run[1]).isEqualTo(due[(int) run[0]]);
+            if (i > 0) {
+                final long[] previous = runs.get(i - 1);
+                assertThat(run[1] > previous[1] || (run[1] == previous[1] && run[0] > previous[0])).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void advanceRunsTasksAtTheirDueCycle() {
+        newTask(0).schedule(30);
+        newTask(1).schedule(10);
+        newTask(2).schedule(20);
+        scheduler.advance(25);
+
+        assertThat(runs.size()).isEqualTo(2);
+        assertThat(runs.get(0)).containsExactly(1L, 10L);
+        assertThat(runs.get(1)).containsExactly(2L, 20L);
+        assertThat(scheduler.getCycle()).isEqualTo(25L);
+        assertThat(scheduler.getCyclesUntilNextEvent()).isEqualTo(5L);
+
+        scheduler.advance(5);
+        assertThat(runs.size()).isEqualTo(3);
+        assertThat(runs.get(2)).containsExactly(0L, 30L);
+        assertThat(scheduler.getCyclesUntilNextEvent()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void reschedulingReplacesRatherThanDuplicates() {
+        final ScheduledTask task = newTask(0);
+        task.schedule(10);
+        task.schedule(20);
+        tick(30);
+        assertThat(runs.size()).isEqualTo(1);
+        assertThat(runs.get(0)[1]).isEqualTo(20L);
+
+        runs.clear();
+        task.schedule(10);
+        task.reschedule(5);
+        tick(20);
+        assertThat(runs.size()).isEqualTo(1);
+        assertThat(runs.get(0)[1]).isEqualTo(35L);
+    }
+
+    @Test
+    void reschedulingMovesTaskWithinHeap() {
+        final ScheduledTask[] tasks = new ScheduledTask[8];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = newTask(i);
+            tasks[i].schedule(10 + i);
+        }
+        // Last becomes first, first becomes last
+        tasks[7].schedule(1);
+        tasks[0].schedule(100);
+        tasks[3].cancel();
+        scheduler.advance(100);
+
+        final List<Long> order = new ArrayList<>();
+        for (long[] run : runs) {
+            order.add(run[0]);
+        }
+        assertThat(order).containsExactly(7L, 1L, 2L, 4L, 5L, 6L, 0L);
+    }
+
+    @Test
+    void delayIsAtLeastOneCycle() {
+        newTask(0).schedule(0);
+        newTask(1).schedule(-5);
+        assertThat(runs).isEmpty();
+        assertThat(scheduler.getCyclesUntilNextEvent()).isEqualTo(1L);
+
+        tick(1);
+        assertThat(runs.size()).isEqualTo(2);
+        assertThat(runs.get(0)).containsExactly(0L, 1L);
+        assertThat(runs.get(1)).containsExactly(1L, 1L);
+    }
+
+    @Test
+    void taskCanRescheduleItselfWhileRunning() {
+        final ScheduledTask[] task = new ScheduledTask[1];
+        task[0] = scheduler.newTask(() -> {
+            runs.add(new long[]{0, scheduler.getCycle()});
+            task[0].schedule(7);
+        });
+        task[0].schedule(7);
+        scheduler.advance(30);
+
+        assertThat(runs.size()).isEqualTo(4);
+        for (int i = 0; i < runs.size(); i++) {
+            assertThat(runs.get(i)[1]).isEqualTo(7L * (i + 1));
+        }
+    }
+
+    @Test
+    void cancelledTaskDoesNotRun() {
+        final ScheduledTask task = newTask(0);
+        task.schedule(5);
+        task.cancel();
+        task.cancel();
+        tick(10);
+        assertThat(runs).isEmpty();
+        assertThat(scheduler.getCyclesUntilNextEvent()).isEqualTo(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,183 @@
+package org.javabeeb.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StateTest {
+
+    @Test
+    void deflatedRoundTrip() throws Exception {
+        final State state = roundTrip(newState(), true);
+        assertRestored(state);
+    }
+
+    @Test
+    void rawRoundTrip() throws Exception {
+        final State state = roundTrip(newState(), false);
+        assertRestored(state);
+    }
+
+    @Test
+    void deflatedFileIsSmallerForCompressibleMemory() throws Exception {
+        final State state = newState();
+        final File raw = File.createTempFile("javabeeb", ".state");
+        final File deflated = File.createTempFile("javabeeb", ".state");
+        try {
+            state.write(raw, false);
+            state.write(deflated, true);
+            assertThat(deflated.length()).isLessThan(raw.length());
+        } finally {
+            raw.delete();
+            deflated.delete();
+        }
+    }
+
+    @Test
+    void headerHoldsMagicVersionAndFlags() throws Exception {
+        final File file = File.createTempFile("javabeeb", ".state");
+        try {
+            newState().write(file, false);
+            final ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            assertThat(buf.getInt()).isEqualTo(0x4A425354);
+            assertThat(buf.getInt()).isEqualTo(1);
+            assertThat(buf.get()).isEqualTo((byte) 0);
+            assertThat(buf.getInt()).isEqualTo(buf.remaining());
+
+            newState().write(file);
+            assertThat(Files.readAllBytes(file.toPath())[8]).isEqualTo((byte) 1);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void newerVersionIsRejected() throws Exception {
+        final File file = File.createTempFile("javabeeb", ".state");
+        try {
+            newState().write(file, false);
+            final byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer.wrap(bytes).putInt(4, 2);
+            Files.write(file.toPath(), bytes);
+            assertThrows(IOException.class, () -> State.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void truncatedDeflatedBodyIsRejected() throws Exception {
+        final File file = File.createTempFile("javabeeb", ".state");
+        try {
+            newState().write(file, true);
+            final byte[] bytes = Files.readAllBytes(file.toPath());
+            Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+            assertThrows(IOException.class, () -> State.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void legacyFormatIsRead() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        out.writeUTF("cpu");
+        // Everything but arrays as strings
+        out.writeInt(3);
+        out.writeUTF("pc");
+        out.writeUTF("49152");
+        out.writeUTF("cycles");
+        out.writeUTF("123456789012");
+        out.writeUTF("halted");
+        out.writeUTF("true");
+        out.writeInt(2);
+        out.writeUTF("registers");
+        out.writeInt(3);
+        out.writeInt(1);
+        out.writeInt(-2);
+        out.writeInt(300);
+        // Byte arrays written raw, flagged by a negative length
+        out.writeUTF("memory");
+        out.writeInt(-4);
+        out.write(new byte[]{1, (byte) 0x80, (byte) 0xFF, 0});
+        out.flush();
+
+        final File file = File.createTempFile("javabeeb", ".state");
+        try {
+            Files.write(file.toPath(), bytes.toByteArray());
+            final TypedProperties cpu = State.read(file).get("cpu");
+            assertThat(cpu.getInt("pc", 0)).isEqualTo(49152);
+            assertThat(cpu.getLong("cycles", 0L)).isEqualTo(123456789012L);
+            assertThat(cpu.getBoolean("halted", false)).isTrue();
+            assertThat(cpu.getIntArray("registers")).containsExactly(1, -2, 300);
+            assertThat(cpu.getByteArray("memory")).containsExactly((byte) 1, (byte) 0x80, (byte) 0xFF, (byte) 0);
+            // Byte arrays written before they were supported come back from int arrays
+            assertThat(cpu.getByteArray("registers")).containsExactly((byte) 1, (byte) -2, (byte) 300);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static State newState() {
+        final TypedProperties cpu = new TypedProperties();
+        cpu.putInt("pc", 0xC000);
+        cpu.putLong("cycles", 123456789012L);
+        cpu.putBoolean("halted", true);
+        cpu.putDouble("speed", 2.5);
+        cpu.putString("name", "6502 \u00A3");
+        cpu.putIntArray("registers", new int[]{1, -2, 300});
+
+        final TypedProperties ram = new TypedProperties();
+        final byte[] memory = new byte[32768];
+        for (int i = 0; i < memory.length; i += 7) {
+            memory[i] = (byte) i;
+        }
+        ram.putByteArray("memory", memory);
+        ram.putByteArray("empty", new byte[0]);
+
+        final State state = new State();
+        state.put("cpu", cpu);
+        state.put("ram", ram);
+        return state;
+    }
+
+    private static void assertRestored(final State state) {
+        final TypedProperties cpu = state.get("cpu");
+        assertThat(cpu.getInt("pc", 0)).isEqualTo(0xC000);
+        assertThat(cpu.getLong("cycles", 0L)).isEqualTo(123456789012L);
+        assertThat(cpu.getBoolean("halted", false)).isTrue();
+        assertThat(cpu.getDouble("speed", 0.0)).isEqualTo(2.5);
+        assertThat(cpu.getString("name", null)).isEqualTo("6502 \u00A3");
+        assertThat(cpu.getIntArray("registers")).containsExactly(1, -2, 300);
+
+        final TypedProperties ram = state.get("ram");
+        final byte[] memory = ram.getByteArray("memory");
+        assertThat(memory.length).isEqualTo(32768);
+        for (int i = 0; i < memory.length; i++) {
+            assertThat(memory[i]).isEqualTo((i % 7 == 0) ? (byte) i : (byte) 0);
+        }
+        assertThat(ram.getByteArray("empty").length).isEqualTo(0);
+        assertThat(state.get("missing")).isNull();
+    }
+
+    private static State roundTrip(final State state, final boolean deflated) throws IOException {
+        final File file = File.createTempFile("javabeeb", ".state");
+        try {
+            state.write(file, deflated);
+            return State.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+}